@@ -31,7 +31,7 @@ public enum Alliance {
 
         @Override
         public boolean isPawnPromotionSquare(final int position) {
-            return BoardUtils.INSTANCE.FIRST_ROW.get(position);
+            return BoardUtils.getRow(position) == 0;
         }
 
         @Override
@@ -100,7 +100,7 @@ public enum Alliance {
 
         @Override
         public boolean isPawnPromotionSquare(final int position) {
-            return BoardUtils.INSTANCE.EIGHTH_ROW.get(position);
+            return BoardUtils.getRow(position) == BoardUtils.NUM_TILES_PER_ROW - 1;
         }
 
         @Override
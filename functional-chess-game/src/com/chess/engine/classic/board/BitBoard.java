@@ -0,0 +1,468 @@
+package com.chess.engine.classic.board;
+
+import com.chess.engine.classic.Alliance;
+import com.chess.engine.classic.pieces.Piece.PieceType;
+
+/*
+ * Bitboard view of a position: one long per (alliance, piece type) plus occupancy masks.
+ * Bit i corresponds to tile coordinate i, so bit 0 is a8 and bit 63 is h1.
+ *
+ * Slider attacks come from magic lookup tables: the occupancy bits that can block a
+ * slider on a square are multiplied by a per-square magic number, and the top bits of
+ * the product index a table of precomputed attack sets. The magic numbers below were found
+ * offline by trial of sparse random candidates; the tables themselves are filled in when the
+ * class loads.
+ */
+public final class BitBoard {
+
+    public static final int NUM_PIECE_TYPES = 6;
+    /* Scratch needed by staticExchange: one entry per capture in the sequence, at most one per piece. */
+    public static final int EXCHANGE_GAINS_LENGTH = 32;
+
+    private static final PieceType[] PIECE_TYPES = PieceType.values();
+
+    private static final int NORTH = 0;
+    private static final int NORTH_EAST = 1;
+    private static final int EAST = 2;
+    private static final int SOUTH_EAST = 3;
+    private static final int SOUTH = 4;
+    private static final int SOUTH_WEST = 5;
+    private static final int WEST = 6;
+    private static final int NORTH_WEST = 7;
+
+    private static final int[] ROW_STEPS = { -1, -1, 0, 1, 1, 1, 0, -1 };
+    private static final int[] COLUMN_STEPS = { 0, 1, 1, 1, 0, -1, -1, -1 };
+
+    private static final long[][] RAYS = initRays();
+    private static final long[] KNIGHT_ATTACKS = initLeaperAttacks(new int[][] {
+            {-2, -1}, {-2, 1}, {-1, -2}, {-1, 2}, {1, -2}, {1, 2}, {2, -1}, {2, 1}});
+    private static final long[] KING_ATTACKS = initLeaperAttacks(new int[][] {
+            {-1, -1}, {-1, 0}, {-1, 1}, {0, -1}, {0, 1}, {1, -1}, {1, 0}, {1, 1}});
+    private static final long[][] PAWN_ATTACKS = {
+            initLeaperAttacks(new int[][] {{-1, -1}, {-1, 1}}),
+            initLeaperAttacks(new int[][] {{1, -1}, {1, 1}})
+    };
+
+    private static final long[] ROOK_MAGIC_NUMBERS = {
+            0x0080002810804002L, 0x2840100820004000L, 0x3100084020001100L, 0x0500100100A42008L,
+            0x3200050A00502820L, 0x4500080100240002L, 0x0880010000801200L, 0x4A80008004204500L,
+            0x1013801040048220L, 0x4045400048201002L, 0x0000801000802000L, 0x2002000812004022L,
+            0x0441800400080080L, 0x0242000830220184L, 0x0004009024082102L, 0x4841000080420100L,
+            0x4040888000401020L, 0x0080424000201002L, 0x8410110041002000L, 0x9000420009220210L,
+            0x0000808004000801L, 0x0201010002080400L, 0x2408840002900108L, 0xC040060000910C44L,
+            0x0040804200210201L, 0x0000400080200080L, 0x2000200080100088L, 0x08A0100080080083L,
+            0x4008000404002040L, 0x0006020080800400L, 0x811501040008F002L, 0x0080408200010044L,
+            0x2000400024800480L, 0x0000408106002203L, 0x0400200101001040L, 0x0200100009002101L,
+            0x0880800800800400L, 0x0420020080800400L, 0x6201000401000200L, 0x0054800040800100L,
+            0x0080800940068020L, 0x0000500220014000L, 0x0040200900410012L, 0x5A00C32200120008L,
+            0x40060020040A0011L, 0x0000040002008080L, 0x0009000200010004L, 0x1A04040040820021L,
+            0x0000830044320200L, 0x0061608A00C10A00L, 0x0011041044200100L, 0x00C0081040220200L,
+            0x0000110008000500L, 0x2800020004008080L, 0x3026020110080400L, 0x2246007400810200L,
+            0x0000201080010041L, 0x9000204000110081L, 0x0820006A30C02101L, 0x806A090020100105L,
+            0x4141001800103205L, 0x0001000802040001L, 0x0020620088011004L, 0x00001244022A8102L
+    };
+    private static final long[] BISHOP_MAGIC_NUMBERS = {
+            0x203060080041404AL, 0x8804982A00420000L, 0x089000E085000010L, 0x4188049100201004L,
+            0x0001104000004008L, 0x0042020220000000L, 0x2025111002200008L, 0x2102202218044010L,
+            0x0800200284210400L, 0x0400040108410100L, 0x00900800A1120000L, 0x6088082841100008L,
+            0x0000040422400008L, 0x00630A0105205026L, 0x0000810490900890L, 0x3100108241182004L,
+            0x0004804004045430L, 0x0020040421820200L, 0xC190212200821100L, 0x1000820808210004L,
+            0x4001000820082021L, 0x1001000200420202L, 0x2001000244109400L, 0x000083010080B000L,
+            0x4028200408421094L, 0x8102200002248408L, 0x000A480014080111L, 0x5904848008020040L,
+            0x0848840080802008L, 0x1CB0004400805000L, 0x0020840082014420L, 0x4004008001088084L,
+            0x0001101008482080L, 0x24280C8202041814L, 0x0802080106420200L, 0x0000600801010250L,
+            0x2020040400204102L, 0x0001010202810049L, 0x18A8212400006200L, 0x0202520420C44400L,
+            0x0044010440201000L, 0x0100840420018200L, 0x85802200B000060AL, 0x0081804208003080L,
+            0x0000400810480200L, 0x8020010202022020L, 0x0804103401000040L, 0x1004810214200E01L,
+            0x4008440484410418L, 0x1061004104A00040L, 0x1080008848080040L, 0x0C40200884042400L,
+            0x30012031020A0800L, 0x601040104A462080L, 0x0064500206040202L, 0x0042100112008000L,
+            0x049104808C200203L, 0x010023008A012000L, 0x0000000102882400L, 0x0081220000411080L,
+            0x0010D00140050100L, 0x0004000820086888L, 0x0000040404040420L, 0x2408081108121010L
+    };
+    private static final Magic[] ROOK_MAGICS = initMagics(true);
+    private static final Magic[] BISHOP_MAGICS = initMagics(false);
+    private static final long[][] BETWEEN = new long[BoardUtils.NUM_TILES][BoardUtils.NUM_TILES];
+    private static final long[][] LINE = new long[BoardUtils.NUM_TILES][BoardUtils.NUM_TILES];
+
+    static {
+        initLines();
+    }
+
+    private final long[] pieceBoards;
+    private final long whiteOccupancy;
+    private final long blackOccupancy;
+
+    /* Takes ownership of the array: one long per piece code, alliance * NUM_PIECE_TYPES + type. */
+    BitBoard(final long[] pieceBoards) {
+        this.pieceBoards = pieceBoards;
+        long white = 0L;
+        long black = 0L;
+        for (int type = 0; type < NUM_PIECE_TYPES; type++) {
+            white |= pieceBoards[type];
+            black |= pieceBoards[NUM_PIECE_TYPES + type];
+        }
+        this.whiteOccupancy = white;
+        this.blackOccupancy = black;
+    }
+
+    long[] copyPieceBoards() {
+        return this.pieceBoards.clone();
+    }
+
+    public long getPieces(final Alliance alliance,
+                          final PieceType pieceType) {
+        return this.pieceBoards[index(alliance, pieceType)];
+    }
+
+    public long getOccupancy(final Alliance alliance) {
+        return alliance.isWhite() ? this.whiteOccupancy : this.blackOccupancy;
+    }
+
+    public long getOccupancy() {
+        return this.whiteOccupancy | this.blackOccupancy;
+    }
+
+    public boolean isOccupied(final int coordinate) {
+        return (getOccupancy() & squareMask(coordinate)) != 0;
+    }
+
+    /* Enemy pieces attacking the coordinate, treating only the given occupancy as present. */
+    public long attackersTo(final int coordinate,
+                            final Alliance attacker,
+                            final long occupancy) {
+        return attackersTo(this.pieceBoards, coordinate, attacker.ordinal(), occupancy);
+    }
+
+    /* The alliance's pieces that are the only blocker between its king and an enemy slider. */
+    public long pinnedPieces(final Alliance alliance,
+                             final int kingSquare) {
+        return pinnedPieces(this.pieceBoards, alliance.ordinal(), kingSquare, getOccupancy());
+    }
+
+    static long attackersTo(final long[] pieceBoards,
+                            final int coordinate,
+                            final int attacker,
+                            final long occupancy) {
+        final int base = attacker * NUM_PIECE_TYPES;
+        final long queens = pieceBoards[base + PieceType.QUEEN.ordinal()];
+        return ((PAWN_ATTACKS[attacker ^ 1][coordinate] & pieceBoards[base + PieceType.PAWN.ordinal()]) |
+                (KNIGHT_ATTACKS[coordinate] & pieceBoards[base + PieceType.KNIGHT.ordinal()]) |
+                (KING_ATTACKS[coordinate] & pieceBoards[base + PieceType.KING.ordinal()]) |
+                (bishopAttacks(coordinate, occupancy) & (pieceBoards[base + PieceType.BISHOP.ordinal()] | queens)) |
+                (rookAttacks(coordinate, occupancy) & (pieceBoards[base + PieceType.ROOK.ordinal()] | queens))) & occupancy;
+    }
+
+    /*
+     * Static exchange evaluation: the material the mover can expect from the exchange the move
+     * starts on its target square, if both sides go on recapturing there with their least
+     * valuable attacker and either may stop when carrying on would lose more. Attacks through
+     * the pieces that have already captured are found as they leave the board; pins are not
+     * considered.
+     */
+    public int staticExchange(final int move,
+                              final Alliance mover,
+                              final int[] gains) {
+        return staticExchange(this.pieceBoards, move, mover.ordinal(),
+                getOccupancy() & ~squareMask(MoveEncoding.getFrom(move)), gains);
+    }
+
+    /*
+     * The exchange worked out on bare piece boards, shared with SearchBoard. The occupancy is
+     * the board's with the mover, and an en passant victim, already lifted off; gains is
+     * scratch with room for one entry per capture in the sequence, EXCHANGE_GAINS_LENGTH.
+     */
+    static int staticExchange(final long[] pieceBoards,
+                              final int move,
+                              final int us,
+                              final long occupancyAfterMove,
+                              final int[] gains) {
+        final int to = MoveEncoding.getTo(move);
+        long occupancy = occupancyAfterMove;
+        gains[0] = MoveEncoding.isCapture(move) ? MoveEncoding.getCapturedPieceType(move).getPieceValue() : 0;
+        int onTarget = MoveEncoding.getMovedPieceType(move).getPieceValue();
+        int side = us ^ 1;
+        int captures = 0;
+        while (true) {
+            final long attackers = attackersTo(pieceBoards, to, side, occupancy);
+            if (attackers == 0) {
+                break;
+            }
+            int type = PieceType.PAWN.ordinal();
+            long attacker = attackers & pieceBoards[side * NUM_PIECE_TYPES + type];
+            while (attacker == 0) {
+                type++;
+                attacker = attackers & pieceBoards[side * NUM_PIECE_TYPES + type];
+            }
+            /* a king may only take last, when nothing can take it back */
+            if (type == PieceType.KING.ordinal() && attackersTo(pieceBoards, to, side ^ 1, occupancy) != 0) {
+                break;
+            }
+            captures++;
+            gains[captures] = onTarget - gains[captures - 1];
+            onTarget = PIECE_TYPES[type].getPieceValue();
+            occupancy &= ~Long.lowestOneBit(attacker);
+            side ^= 1;
+        }
+        while (captures > 0) {
+            gains[captures - 1] = -Math.max(-gains[captures - 1], gains[captures]);
+            captures--;
+        }
+        return gains[0];
+    }
+
+    static long pinnedPieces(final long[] pieceBoards,
+                             final int side,
+                             final int kingSquare,
+                             final long occupancy) {
+        final int enemy = (side ^ 1) * NUM_PIECE_TYPES;
+        final long queens = pieceBoards[enemy + PieceType.QUEEN.ordinal()];
+        long snipers = (rookAttacks(kingSquare, 0L) & (pieceBoards[enemy + PieceType.ROOK.ordinal()] | queens)) |
+                       (bishopAttacks(kingSquare, 0L) & (pieceBoards[enemy + PieceType.BISHOP.ordinal()] | queens));
+        long pinned = 0L;
+        while (snipers != 0) {
+            final long blockers = BETWEEN[kingSquare][Long.numberOfTrailingZeros(snipers)] & occupancy;
+            if (Long.bitCount(blockers) == 1) {
+                pinned |= blockers;
+            }
+            snipers &= snipers - 1;
+        }
+        long own = 0L;
+        for (int type = 0; type < NUM_PIECE_TYPES; type++) {
+            own |= pieceBoards[side * NUM_PIECE_TYPES + type];
+        }
+        return pinned & own;
+    }
+
+    /* Squares strictly between two coordinates on a rank, file or diagonal; empty otherwise. */
+    public static long between(final int from,
+                               final int to) {
+        return BETWEEN[from][to];
+    }
+
+    /* The whole rank, file or diagonal through both coordinates; empty if they are not aligned. */
+    public static long line(final int from,
+                            final int to) {
+        return LINE[from][to];
+    }
+
+    public static long squareMask(final int coordinate) {
+        return 1L << coordinate;
+    }
+
+    public static long knightAttacks(final int coordinate) {
+        return KNIGHT_ATTACKS[coordinate];
+    }
+
+    public static long kingAttacks(final int coordinate) {
+        return KING_ATTACKS[coordinate];
+    }
+
+    public static long pawnAttacks(final Alliance alliance,
+                                   final int coordinate) {
+        return PAWN_ATTACKS[alliance.ordinal()][coordinate];
+    }
+
+    public static long rookAttacks(final int coordinate,
+                                   final long occupancy) {
+        return ROOK_MAGICS[coordinate].attacks(occupancy);
+    }
+
+    public static long bishopAttacks(final int coordinate,
+                                     final long occupancy) {
+        return BISHOP_MAGICS[coordinate].attacks(occupancy);
+    }
+
+    public static long queenAttacks(final int coordinate,
+                                    final long occupancy) {
+        return rookAttacks(coordinate, occupancy) | bishopAttacks(coordinate, occupancy);
+    }
+
+    /* Squares a piece of any type but pawn attacks from the coordinate. */
+    public static long attacks(final PieceType pieceType,
+                               final int coordinate,
+                               final long occupancy) {
+        switch (pieceType) {
+            case KNIGHT:
+                return knightAttacks(coordinate);
+            case BISHOP:
+                return bishopAttacks(coordinate, occupancy);
+            case ROOK:
+                return rookAttacks(coordinate, occupancy);
+            case QUEEN:
+                return queenAttacks(coordinate, occupancy);
+            case KING:
+                return kingAttacks(coordinate);
+            default:
+                throw new RuntimeException("pawn attacks depend on the alliance");
+        }
+    }
+
+    private static long slowRookAttacks(final int coordinate,
+                                        final long occupancy) {
+        return positiveRayAttacks(EAST, coordinate, occupancy) |
+               positiveRayAttacks(SOUTH, coordinate, occupancy) |
+               negativeRayAttacks(WEST, coordinate, occupancy) |
+               negativeRayAttacks(NORTH, coordinate, occupancy);
+    }
+
+    private static long slowBishopAttacks(final int coordinate,
+                                          final long occupancy) {
+        return positiveRayAttacks(SOUTH_EAST, coordinate, occupancy) |
+               positiveRayAttacks(SOUTH_WEST, coordinate, occupancy) |
+               negativeRayAttacks(NORTH_EAST, coordinate, occupancy) |
+               negativeRayAttacks(NORTH_WEST, coordinate, occupancy);
+    }
+
+    private static long positiveRayAttacks(final int direction,
+                                           final int coordinate,
+                                           final long occupancy) {
+        final long attacks = RAYS[direction][coordinate];
+        final long blockers = attacks & occupancy;
+        if (blockers == 0) {
+            return attacks;
+        }
+        return attacks ^ RAYS[direction][Long.numberOfTrailingZeros(blockers)];
+    }
+
+    private static long negativeRayAttacks(final int direction,
+                                           final int coordinate,
+                                           final long occupancy) {
+        final long attacks = RAYS[direction][coordinate];
+        final long blockers = attacks & occupancy;
+        if (blockers == 0) {
+            return attacks;
+        }
+        return attacks ^ RAYS[direction][63 - Long.numberOfLeadingZeros(blockers)];
+    }
+
+    static int index(final Alliance alliance,
+                     final PieceType pieceType) {
+        return alliance.ordinal() * NUM_PIECE_TYPES + pieceType.ordinal();
+    }
+
+    private static long[][] initRays() {
+        final long[][] rays = new long[ROW_STEPS.length][BoardUtils.NUM_TILES];
+        for (int direction = 0; direction < ROW_STEPS.length; direction++) {
+            for (int coordinate = 0; coordinate < BoardUtils.NUM_TILES; coordinate++) {
+                int row = BoardUtils.getRow(coordinate) + ROW_STEPS[direction];
+                int column = BoardUtils.getColumn(coordinate) + COLUMN_STEPS[direction];
+                while (isOnBoard(row, column)) {
+                    rays[direction][coordinate] |= squareMask(row * BoardUtils.NUM_TILES_PER_ROW + column);
+                    row += ROW_STEPS[direction];
+                    column += COLUMN_STEPS[direction];
+                }
+            }
+        }
+        return rays;
+    }
+
+    private static void initLines() {
+        for (int from = 0; from < BoardUtils.NUM_TILES; from++) {
+            for (int direction = 0; direction < ROW_STEPS.length; direction++) {
+                final int opposite = (direction + ROW_STEPS.length / 2) % ROW_STEPS.length;
+                long ray = RAYS[direction][from];
+                while (ray != 0) {
+                    final int to = Long.numberOfTrailingZeros(ray);
+                    BETWEEN[from][to] = RAYS[direction][from] & ~RAYS[direction][to] & ~squareMask(to);
+                    LINE[from][to] = RAYS[direction][from] | RAYS[opposite][from] | squareMask(from);
+                    ray &= ray - 1;
+                }
+            }
+        }
+    }
+
+    private static long[] initLeaperAttacks(final int[][] steps) {
+        final long[] attacks = new long[BoardUtils.NUM_TILES];
+        for (int coordinate = 0; coordinate < BoardUtils.NUM_TILES; coordinate++) {
+            for (final int[] step : steps) {
+                final int row = BoardUtils.getRow(coordinate) + step[0];
+                final int column = BoardUtils.getColumn(coordinate) + step[1];
+                if (isOnBoard(row, column)) {
+                    attacks[coordinate] |= squareMask(row * BoardUtils.NUM_TILES_PER_ROW + column);
+                }
+            }
+        }
+        return attacks;
+    }
+
+    private static Magic[] initMagics(final boolean rook) {
+        final Magic[] magics = new Magic[BoardUtils.NUM_TILES];
+        for (int coordinate = 0; coordinate < BoardUtils.NUM_TILES; coordinate++) {
+            magics[coordinate] = createMagic(coordinate, rook);
+        }
+        return magics;
+    }
+
+    private static Magic createMagic(final int coordinate,
+                                   final boolean rook) {
+        final long mask = rook ? rookRelevantOccupancy(coordinate) : bishopRelevantOccupancy(coordinate);
+        final long magic = rook ? ROOK_MAGIC_NUMBERS[coordinate] : BISHOP_MAGIC_NUMBERS[coordinate];
+        final int shift = 64 - Long.bitCount(mask);
+        final long[] attacks = new long[1 << Long.bitCount(mask)];
+        final boolean[] filled = new boolean[attacks.length];
+        long subset = 0L;
+        do {
+            final int index = (int) ((subset * magic) >>> shift);
+            final long subsetAttacks = rook ? slowRookAttacks(coordinate, subset) : slowBishopAttacks(coordinate, subset);
+            if (filled[index] && attacks[index] != subsetAttacks) {
+                throw new RuntimeException("Bad magic number for " + (rook ? "rook" : "bishop") + " on " + coordinate);
+            }
+            filled[index] = true;
+            attacks[index] = subsetAttacks;
+            subset = (subset - mask) & mask;
+        } while (subset != 0);
+        return new Magic(mask, magic, shift, attacks);
+    }
+
+    /* Squares whose occupancy can change the attack set: the rays without their final edge square. */
+    private static long rookRelevantOccupancy(final int coordinate) {
+        return trimPositiveRay(EAST, coordinate) | trimPositiveRay(SOUTH, coordinate) |
+               trimNegativeRay(WEST, coordinate) | trimNegativeRay(NORTH, coordinate);
+    }
+
+    private static long bishopRelevantOccupancy(final int coordinate) {
+        return trimPositiveRay(SOUTH_EAST, coordinate) | trimPositiveRay(SOUTH_WEST, coordinate) |
+               trimNegativeRay(NORTH_EAST, coordinate) | trimNegativeRay(NORTH_WEST, coordinate);
+    }
+
+    private static long trimPositiveRay(final int direction,
+                                        final int coordinate) {
+        final long ray = RAYS[direction][coordinate];
+        return ray == 0 ? 0 : ray & ~Long.highestOneBit(ray);
+    }
+
+    private static long trimNegativeRay(final int direction,
+                                        final int coordinate) {
+        final long ray = RAYS[direction][coordinate];
+        return ray & ~Long.lowestOneBit(ray);
+    }
+
+    private static boolean isOnBoard(final int row,
+                                     final int column) {
+        return row >= 0 && row < BoardUtils.NUM_TILES_PER_ROW && column >= 0 && column < BoardUtils.NUM_TILES_PER_ROW;
+    }
+
+    private static final class Magic {
+
+        private final long mask;
+        private final long magic;
+        private final int shift;
+        private final long[] attacks;
+
+        Magic(final long mask,
+              final long magic,
+              final int shift,
+              final long[] attacks) {
+            this.mask = mask;
+            this.magic = magic;
+            this.shift = shift;
+            this.attacks = attacks;
+        }
+
+        long attacks(final long occupancy) {
+            return this.attacks[(int) (((occupancy & this.mask) * this.magic) >>> this.shift)];
+        }
+
+    }
+
+}
@@ -1,91 +1,50 @@
 package com.chess.engine.classic.board;
 
 import com.chess.engine.classic.Alliance;
-import com.chess.engine.classic.board.Move.MoveFactory;
 import com.chess.engine.classic.pieces.*;
+import com.chess.engine.classic.pieces.Piece.PieceType;
 import com.chess.engine.classic.player.BlackPlayer;
 import com.chess.engine.classic.player.Player;
 import com.chess.engine.classic.player.WhitePlayer;
 //import com.chess.engine.*;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
-import java.util.Random;
+import java.util.List;
 
 public final class Board {
 
-    private final Map<Integer, Piece> boardConfig;
-    private final Collection<Piece> whitePieces;
-    private final Collection<Piece> blackPieces;
+    private final Tiles tiles;
+    private final BitBoard bitBoard;
     private final WhitePlayer whitePlayer;
     private final BlackPlayer blackPlayer;
     private final Player currentPlayer;
     private final Pawn enPassantPawn;
-    private final Move transitionMove;
+    private final MoveHistory moveHistory;
+    private final int castlingRights;
+    private final long zobristHash;
+    private volatile Collection<Piece> whitePieces;
+    private volatile Collection<Piece> blackPieces;
     private static final Board STANDARD_BOARD = createStandardBoardImpl();
 
-
-    /* Added variables / methods for ZobristHashing for Transpoistion table in parallel alpha-beta algorithm */
-    private static final long[][][] ZOBRIST_TABLE = generateZobristTable();
-
-    private static long[][][] generateZobristTable() {
-        long[][][] zobristTable = new long[64][12][2];
-        Random random = new Random();
-        
-        for (int position = 0; position < 64; position++) {
-            for (int piece = 0; piece < 12; piece++) {
-                for (int color = 0; color < 2; color++) {
-                    zobristTable[position][piece][color] = random.nextLong();
-                }
-            }
-        }
-        
-        return zobristTable;
-    }
-
-    public long getZobristHash() {
-        long hash = 0L;
-    
-        // Iterate through all the positions on the board
-        for (int position = 0; position < 64; position++) {
-            // Retrieve the piece at the current position
-            Piece piece = getPiece(position);
-            
-            // If there's a piece at the current position
-            if (piece != null) {
-                int pieceType = piece.getPieceType().ordinal(); 
-                int color = piece.getPieceAllegiance().isWhite() ? 0 : 1; 
-                hash ^= ZOBRIST_TABLE[position][pieceType][color];
-            }
-        }
-    
-        return hash;
-    }
-
-    /* End of additons in Board Class for paralell alpha-beta */
-    
     private Board(final Builder builder) {
-        this.boardConfig = Collections.unmodifiableMap(builder.boardConfig);
-        this.whitePieces = calculateActivePieces(builder, Alliance.WHITE);
-        this.blackPieces = calculateActivePieces(builder, Alliance.BLACK);
+        this.tiles = builder.tiles.freeze();
+        this.bitBoard = new BitBoard(builder.pieceBoards.clone());
         this.enPassantPawn = builder.enPassantPawn;
-        final Collection<Move> whiteStandardMoves = calculateLegalMoves(this.whitePieces);
-        final Collection<Move> blackStandardMoves = calculateLegalMoves(this.blackPieces);
-        this.whitePlayer = new WhitePlayer(this, whiteStandardMoves, blackStandardMoves);
-        this.blackPlayer = new BlackPlayer(this, whiteStandardMoves, blackStandardMoves);
+        this.whitePlayer = new WhitePlayer(this);
+        this.blackPlayer = new BlackPlayer(this);
         this.currentPlayer = builder.nextMoveMaker.choosePlayerByAlliance(this.whitePlayer, this.blackPlayer);
-        this.transitionMove = builder.transitionMove != null ? builder.transitionMove : MoveFactory.getNullMove();
+        this.moveHistory = builder.transitionMove != null ? builder.moveHistory.push(builder.transitionMove) : builder.moveHistory;
+        this.castlingRights = builder.castlingRights != null ? builder.castlingRights : BoardUtils.calculateCastlingRights(this);
+        this.zobristHash = builder.zobristHash != null ? builder.zobristHash : Zobrist.calculate(this);
     }
 
     @Override
     public String toString() {
         final StringBuilder builder = new StringBuilder();
         for (int i = 0; i < BoardUtils.NUM_TILES; i++) {
-            final String tileText = prettyPrint(this.boardConfig.get(i));
+            final String tileText = prettyPrint(this.tiles.get(i));
             builder.append(String.format("%3s", tileText));
             if ((i + 1) % 8 == 0) {
                 builder.append("\n");
@@ -102,22 +61,43 @@ public final class Board {
         return "-";
     }
 
+    /*
+     * The piece lists are only needed once a board's moves are generated, so boards that are
+     * just kept as history never build them.
+     */
     public Collection<Piece> getBlackPieces() {
-        return this.blackPieces;
+        Collection<Piece> pieces = this.blackPieces;
+        if (pieces == null) {
+            pieces = calculateActivePieces(Alliance.BLACK);
+            this.blackPieces = pieces;
+        }
+        return pieces;
     }
 
     public Collection<Piece> getWhitePieces() {
-        return this.whitePieces;
+        Collection<Piece> pieces = this.whitePieces;
+        if (pieces == null) {
+            pieces = calculateActivePieces(Alliance.WHITE);
+            this.whitePieces = pieces;
+        }
+        return pieces;
     }
 
     public Collection<Piece> getAllPieces() {
-        return Stream.concat(this.whitePieces.stream(),
-                             this.blackPieces.stream()).collect(Collectors.toList());
+        final Collection<Piece> whitePieces = getWhitePieces();
+        final Collection<Piece> blackPieces = getBlackPieces();
+        final List<Piece> allPieces = new ArrayList<>(whitePieces.size() + blackPieces.size());
+        allPieces.addAll(whitePieces);
+        allPieces.addAll(blackPieces);
+        return allPieces;
     }
 
     public Collection<Move> getAllLegalMoves() {
-        return Stream.concat(this.whitePlayer.getLegalMoves().stream(),
-                             this.blackPlayer.getLegalMoves().stream()).collect(Collectors.toList());
+        final List<Move> allMoves = new ArrayList<>(this.whitePlayer.getLegalMoves().size() +
+                                                    this.blackPlayer.getLegalMoves().size());
+        allMoves.addAll(this.whitePlayer.getLegalMoves());
+        allMoves.addAll(this.blackPlayer.getLegalMoves());
+        return allMoves;
     }
 
     public WhitePlayer whitePlayer() {
@@ -133,7 +113,11 @@ public final class Board {
     }
 
     public Piece getPiece(final int coordinate) {
-        return this.boardConfig.get(coordinate);
+        return this.tiles.get(coordinate);
+    }
+
+    public BitBoard getBitBoard() {
+        return this.bitBoard;
     }
 
     public Pawn getEnPassantPawn() {
@@ -141,7 +125,20 @@ public final class Board {
     }
 
     public Move getTransitionMove() {
-        return this.transitionMove;
+        return this.moveHistory.getMove(0);
+    }
+
+    public MoveHistory getMoveHistory() {
+        return this.moveHistory;
+    }
+
+    /* The BoardUtils castling bits still available, carried forward by each move rather than rederived. */
+    public int getCastlingRights() {
+        return this.castlingRights;
+    }
+
+    public long getZobristHash() {
+        return this.zobristHash;
     }
 
     public static Board createStandardBoard() {
@@ -151,70 +148,93 @@ public final class Board {
     private static Board createStandardBoardImpl() {
         final Builder builder = new Builder();
         // Black Layout
-        builder.setPiece(new Rook(Alliance.BLACK, 0));
-        builder.setPiece(new Knight(Alliance.BLACK, 1));
-        builder.setPiece(new Bishop(Alliance.BLACK, 2));
-        builder.setPiece(new Queen(Alliance.BLACK, 3));
-        builder.setPiece(new King(Alliance.BLACK, 4, true, true));
-        builder.setPiece(new Bishop(Alliance.BLACK, 5));
-        builder.setPiece(new Knight(Alliance.BLACK, 6));
-        builder.setPiece(new Rook(Alliance.BLACK, 7));
-        builder.setPiece(new Pawn(Alliance.BLACK, 8));
-        builder.setPiece(new Pawn(Alliance.BLACK, 9));
-        builder.setPiece(new Pawn(Alliance.BLACK, 10));
-        builder.setPiece(new Pawn(Alliance.BLACK, 11));
-        builder.setPiece(new Pawn(Alliance.BLACK, 12));
-        builder.setPiece(new Pawn(Alliance.BLACK, 13));
-        builder.setPiece(new Pawn(Alliance.BLACK, 14));
-        builder.setPiece(new Pawn(Alliance.BLACK, 15));
+        builder.setPiece(PieceUtils.INSTANCE.getPiece(PieceType.ROOK, Alliance.BLACK, 0));
+        builder.setPiece(PieceUtils.INSTANCE.getPiece(PieceType.KNIGHT, Alliance.BLACK, 1));
+        builder.setPiece(PieceUtils.INSTANCE.getPiece(PieceType.BISHOP, Alliance.BLACK, 2));
+        builder.setPiece(PieceUtils.INSTANCE.getPiece(PieceType.QUEEN, Alliance.BLACK, 3));
+        builder.setPiece(PieceUtils.INSTANCE.getKing(Alliance.BLACK, 4, true, true));
+        builder.setPiece(PieceUtils.INSTANCE.getPiece(PieceType.BISHOP, Alliance.BLACK, 5));
+        builder.setPiece(PieceUtils.INSTANCE.getPiece(PieceType.KNIGHT, Alliance.BLACK, 6));
+        builder.setPiece(PieceUtils.INSTANCE.getPiece(PieceType.ROOK, Alliance.BLACK, 7));
+        builder.setPiece(PieceUtils.INSTANCE.getPiece(PieceType.PAWN, Alliance.BLACK, 8));
+        builder.setPiece(PieceUtils.INSTANCE.getPiece(PieceType.PAWN, Alliance.BLACK, 9));
+        builder.setPiece(PieceUtils.INSTANCE.getPiece(PieceType.PAWN, Alliance.BLACK, 10));
+        builder.setPiece(PieceUtils.INSTANCE.getPiece(PieceType.PAWN, Alliance.BLACK, 11));
+        builder.setPiece(PieceUtils.INSTANCE.getPiece(PieceType.PAWN, Alliance.BLACK, 12));
+        builder.setPiece(PieceUtils.INSTANCE.getPiece(PieceType.PAWN, Alliance.BLACK, 13));
+        builder.setPiece(PieceUtils.INSTANCE.getPiece(PieceType.PAWN, Alliance.BLACK, 14));
+        builder.setPiece(PieceUtils.INSTANCE.getPiece(PieceType.PAWN, Alliance.BLACK, 15));
         // White Layout
-        builder.setPiece(new Pawn(Alliance.WHITE, 48));
-        builder.setPiece(new Pawn(Alliance.WHITE, 49));
-        builder.setPiece(new Pawn(Alliance.WHITE, 50));
-        builder.setPiece(new Pawn(Alliance.WHITE, 51));
-        builder.setPiece(new Pawn(Alliance.WHITE, 52));
-        builder.setPiece(new Pawn(Alliance.WHITE, 53));
-        builder.setPiece(new Pawn(Alliance.WHITE, 54));
-        builder.setPiece(new Pawn(Alliance.WHITE, 55));
-        builder.setPiece(new Rook(Alliance.WHITE, 56));
-        builder.setPiece(new Knight(Alliance.WHITE, 57));
-        builder.setPiece(new Bishop(Alliance.WHITE, 58));
-        builder.setPiece(new Queen(Alliance.WHITE, 59));
-        builder.setPiece(new King(Alliance.WHITE, 60, true, true));
-        builder.setPiece(new Bishop(Alliance.WHITE, 61));
-        builder.setPiece(new Knight(Alliance.WHITE, 62));
-        builder.setPiece(new Rook(Alliance.WHITE, 63));
+        builder.setPiece(PieceUtils.INSTANCE.getPiece(PieceType.PAWN, Alliance.WHITE, 48));
+        builder.setPiece(PieceUtils.INSTANCE.getPiece(PieceType.PAWN, Alliance.WHITE, 49));
+        builder.setPiece(PieceUtils.INSTANCE.getPiece(PieceType.PAWN, Alliance.WHITE, 50));
+        builder.setPiece(PieceUtils.INSTANCE.getPiece(PieceType.PAWN, Alliance.WHITE, 51));
+        builder.setPiece(PieceUtils.INSTANCE.getPiece(PieceType.PAWN, Alliance.WHITE, 52));
+        builder.setPiece(PieceUtils.INSTANCE.getPiece(PieceType.PAWN, Alliance.WHITE, 53));
+        builder.setPiece(PieceUtils.INSTANCE.getPiece(PieceType.PAWN, Alliance.WHITE, 54));
+        builder.setPiece(PieceUtils.INSTANCE.getPiece(PieceType.PAWN, Alliance.WHITE, 55));
+        builder.setPiece(PieceUtils.INSTANCE.getPiece(PieceType.ROOK, Alliance.WHITE, 56));
+        builder.setPiece(PieceUtils.INSTANCE.getPiece(PieceType.KNIGHT, Alliance.WHITE, 57));
+        builder.setPiece(PieceUtils.INSTANCE.getPiece(PieceType.BISHOP, Alliance.WHITE, 58));
+        builder.setPiece(PieceUtils.INSTANCE.getPiece(PieceType.QUEEN, Alliance.WHITE, 59));
+        builder.setPiece(PieceUtils.INSTANCE.getKing(Alliance.WHITE, 60, true, true));
+        builder.setPiece(PieceUtils.INSTANCE.getPiece(PieceType.BISHOP, Alliance.WHITE, 61));
+        builder.setPiece(PieceUtils.INSTANCE.getPiece(PieceType.KNIGHT, Alliance.WHITE, 62));
+        builder.setPiece(PieceUtils.INSTANCE.getPiece(PieceType.ROOK, Alliance.WHITE, 63));
         //white to move
         builder.setMoveMaker(Alliance.WHITE);
         //build the board
         return builder.build();
     }
 
-    private Collection<Move> calculateLegalMoves(final Collection<Piece> pieces) {
-        return pieces.stream().flatMap(piece -> piece.calculateLegalMoves(this).stream())
-                      .collect(Collectors.toList());
-    }
-
-    private static Collection<Piece> calculateActivePieces(final Builder builder,
-                                                           final Alliance alliance) {
-        return builder.boardConfig.values().stream()
-               .filter(piece -> piece.getPieceAllegiance() == alliance)
-               .collect(Collectors.toList());
+    private Collection<Piece> calculateActivePieces(final Alliance alliance) {
+        long occupancy = this.bitBoard.getOccupancy(alliance);
+        final List<Piece> activePieces = new ArrayList<>(Long.bitCount(occupancy));
+        while (occupancy != 0) {
+            activePieces.add(this.tiles.get(Long.numberOfTrailingZeros(occupancy)));
+            occupancy &= occupancy - 1;
+        }
+        return Collections.unmodifiableList(activePieces);
     }
 
     public static class Builder {
 
-        Map<Integer, Piece> boardConfig;
+        final Tiles.Editor tiles;
+        final long[] pieceBoards;
         Alliance nextMoveMaker;
         Pawn enPassantPawn;
         Move transitionMove;
+        MoveHistory moveHistory;
+        Integer castlingRights;
+        Long zobristHash;
 
         public Builder() {
-            this.boardConfig = new HashMap<>(32, 1.0f);
+            this.tiles = Tiles.EMPTY.edit();
+            this.pieceBoards = new long[2 * BitBoard.NUM_PIECE_TYPES];
+            this.moveHistory = MoveHistory.EMPTY;
+        }
+
+        /* Starts from the pieces of an existing board, sharing its tiles until they are written. */
+        Builder(final Board board) {
+            this.tiles = board.tiles.edit();
+            this.pieceBoards = board.bitBoard.copyPieceBoards();
+            this.moveHistory = board.moveHistory;
         }
 
         public Builder setPiece(final Piece piece) {
-            this.boardConfig.put(piece.getPiecePosition(), piece);
+            final int coordinate = piece.getPiecePosition();
+            clearTile(coordinate);
+            this.tiles.set(coordinate, piece);
+            this.pieceBoards[BitBoard.index(piece.getPieceAllegiance(), piece.getPieceType())] |= BitBoard.squareMask(coordinate);
+            return this;
+        }
+
+        Builder clearTile(final int coordinate) {
+            final Piece piece = this.tiles.get(coordinate);
+            if (piece != null) {
+                this.tiles.set(coordinate, null);
+                this.pieceBoards[BitBoard.index(piece.getPieceAllegiance(), piece.getPieceType())] &= ~BitBoard.squareMask(coordinate);
+            }
             return this;
         }
 
@@ -233,6 +253,21 @@ public final class Board {
             return this;
         }
 
+        Builder setMoveHistory(final MoveHistory moveHistory) {
+            this.moveHistory = moveHistory;
+            return this;
+        }
+
+        Builder setCastlingRights(final int castlingRights) {
+            this.castlingRights = castlingRights;
+            return this;
+        }
+
+        Builder setZobristHash(final long zobristHash) {
+            this.zobristHash = zobristHash;
+            return this;
+        }
+
         public Board build() {
             return new Board(this);
         }
@@ -1,60 +1,80 @@
 package com.chess.engine.classic.board;
 
+import com.chess.engine.classic.Alliance;
 import com.chess.engine.classic.pieces.King;
 import com.chess.engine.classic.pieces.Piece;
 
 import java.util.*;
-
-import static com.chess.engine.classic.board.Move.MoveFactory;
+import java.util.function.IntBinaryOperator;
 
 public enum  BoardUtils {
 
     INSTANCE;
 
-    public final List<Boolean> FIRST_COLUMN = initColumn(0);
-    public final List<Boolean> SECOND_COLUMN = initColumn(1);
-    public final List<Boolean> THIRD_COLUMN = initColumn(2);
-    public final List<Boolean> FOURTH_COLUMN = initColumn(3);
-    public final List<Boolean> FIFTH_COLUMN = initColumn(4);
-    public final List<Boolean> SIXTH_COLUMN = initColumn(5);
-    public final List<Boolean> SEVENTH_COLUMN = initColumn(6);
-    public final List<Boolean> EIGHTH_COLUMN = initColumn(7);
-    public final List<Boolean> FIRST_ROW = initRow(0);
-    public final List<Boolean> SECOND_ROW = initRow(8);
-    public final List<Boolean> THIRD_ROW = initRow(16);
-    public final List<Boolean> FOURTH_ROW = initRow(24);
-    public final List<Boolean> FIFTH_ROW = initRow(32);
-    public final List<Boolean> SIXTH_ROW = initRow(40);
-    public final List<Boolean> SEVENTH_ROW = initRow(48);
-    public final List<Boolean> EIGHTH_ROW = initRow(56);
     public final List<String> ALGEBRAIC_NOTATION = initializeAlgebraicNotation();
     public final Map<String, Integer> POSITION_TO_COORDINATE = initializePositionToCoordinateMap();
     public static final int START_TILE_INDEX = 0;
     public static final int NUM_TILES_PER_ROW = 8;
     public static final int NUM_TILES = 64;
 
-    private static List<Boolean> initColumn(int columnNumber) {
-        final Boolean[] column = new Boolean[NUM_TILES];
-        for(int i = 0; i < column.length; i++) {
-            column[i] = false;
+    public static final int WHITE_KING_SIDE_CASTLE = 1;
+    public static final int WHITE_QUEEN_SIDE_CASTLE = 2;
+    public static final int BLACK_KING_SIDE_CASTLE = 4;
+    public static final int BLACK_QUEEN_SIDE_CASTLE = 8;
+    private static final int[] CASTLING_RIGHTS_MASKS = initCastlingRightsMasks();
+
+    /*
+     * Square geometry as primitive tables. Rows and columns count from 0 at the a8 corner, so
+     * row 0 is the eighth rank and column 0 the a-file. Diagonals run a8-h1 wise and are
+     * numbered row - column + 7; anti-diagonals run h8-a1 wise and are numbered row + column.
+     */
+    private static final int[] ROWS = initSquareTable((row, column) -> row);
+    private static final int[] COLUMNS = initSquareTable((row, column) -> column);
+    private static final int[] DIAGONALS = initSquareTable((row, column) -> row - column + NUM_TILES_PER_ROW - 1);
+    private static final int[] ANTI_DIAGONALS = initSquareTable((row, column) -> row + column);
+    private static final long[] ROW_MASKS = initLineMasks(ROWS, NUM_TILES_PER_ROW);
+    private static final long[] COLUMN_MASKS = initLineMasks(COLUMNS, NUM_TILES_PER_ROW);
+    private static final int[][] CHEBYSHEV_DISTANCE = initDistanceTable(Math::max);
+    private static final int[][] MANHATTAN_DISTANCE = initDistanceTable(Integer::sum);
+
+    private static int[] initCastlingRightsMasks() {
+        final int[] masks = new int[NUM_TILES];
+        Arrays.fill(masks, WHITE_KING_SIDE_CASTLE | WHITE_QUEEN_SIDE_CASTLE | BLACK_KING_SIDE_CASTLE | BLACK_QUEEN_SIDE_CASTLE);
+        masks[60] &= ~(WHITE_KING_SIDE_CASTLE | WHITE_QUEEN_SIDE_CASTLE);
+        masks[63] &= ~WHITE_KING_SIDE_CASTLE;
+        masks[56] &= ~WHITE_QUEEN_SIDE_CASTLE;
+        masks[4] &= ~(BLACK_KING_SIDE_CASTLE | BLACK_QUEEN_SIDE_CASTLE);
+        masks[7] &= ~BLACK_KING_SIDE_CASTLE;
+        masks[0] &= ~BLACK_QUEEN_SIDE_CASTLE;
+        return masks;
+    }
+
+    private static int[] initSquareTable(final IntBinaryOperator fromRowAndColumn) {
+        final int[] table = new int[NUM_TILES];
+        for (int coordinate = 0; coordinate < NUM_TILES; coordinate++) {
+            table[coordinate] = fromRowAndColumn.applyAsInt(coordinate / NUM_TILES_PER_ROW, coordinate % NUM_TILES_PER_ROW);
+        }
+        return table;
+    }
+
+    private static int[][] initDistanceTable(final IntBinaryOperator fromRowAndColumnDistance) {
+        final int[][] table = new int[NUM_TILES][NUM_TILES];
+        for (int from = 0; from < NUM_TILES; from++) {
+            for (int to = 0; to < NUM_TILES; to++) {
+                table[from][to] = fromRowAndColumnDistance.applyAsInt(Math.abs(ROWS[from] - ROWS[to]),
+                                                                      Math.abs(COLUMNS[from] - COLUMNS[to]));
+            }
         }
-        do {
-            column[columnNumber] = true;
-            columnNumber += NUM_TILES_PER_ROW;
-        } while(columnNumber < NUM_TILES);
-        return Collections.unmodifiableList(Arrays.asList((column)));
+        return table;
     }
 
-    private static List<Boolean> initRow(int rowNumber) {
-        final Boolean[] row = new Boolean[NUM_TILES];
-        for(int i = 0; i < row.length; i++) {
-            row[i] = false;
+    private static long[] initLineMasks(final int[] lineOfSquare,
+                                        final int numLines) {
+        final long[] masks = new long[numLines];
+        for (int coordinate = 0; coordinate < NUM_TILES; coordinate++) {
+            masks[lineOfSquare[coordinate]] |= 1L << coordinate;
         }
-        do {
-            row[rowNumber] = true;
-            rowNumber++;
-        } while(rowNumber % NUM_TILES_PER_ROW != 0);
-        return Collections.unmodifiableList(Arrays.asList(row));
+        return masks;
     }
 
     private Map<String, Integer> initializePositionToCoordinateMap() {
@@ -81,6 +101,42 @@ public enum  BoardUtils {
         return coordinate >= START_TILE_INDEX && coordinate < NUM_TILES;
     }
 
+    public static int getRow(final int coordinate) {
+        return ROWS[coordinate];
+    }
+
+    public static int getColumn(final int coordinate) {
+        return COLUMNS[coordinate];
+    }
+
+    public static int getDiagonal(final int coordinate) {
+        return DIAGONALS[coordinate];
+    }
+
+    public static int getAntiDiagonal(final int coordinate) {
+        return ANTI_DIAGONALS[coordinate];
+    }
+
+    public static long getRowMask(final int row) {
+        return ROW_MASKS[row];
+    }
+
+    public static long getColumnMask(final int column) {
+        return COLUMN_MASKS[column];
+    }
+
+    /* King steps between two squares. */
+    public static int chebyshevDistance(final int from,
+                                        final int to) {
+        return CHEBYSHEV_DISTANCE[from][to];
+    }
+
+    /* Rook steps on an empty board, counting each orthogonal step. */
+    public static int manhattanDistance(final int from,
+                                        final int to) {
+        return MANHATTAN_DISTANCE[from][to];
+    }
+
     public int getCoordinateAtPosition(final String position) {
         return POSITION_TO_COORDINATE.get(position);
     }
@@ -89,12 +145,52 @@ public enum  BoardUtils {
         return ALGEBRAIC_NOTATION.get(coordinate);
     }
 
+    /*
+     * A side keeps a castling right while its king and that rook are both unmoved on their home
+     * squares and the king still reports the side as castle capable.
+     */
+    public static int calculateCastlingRights(final Board board) {
+        return calculateCastlingRights(board, Alliance.WHITE, 60, WHITE_KING_SIDE_CASTLE, WHITE_QUEEN_SIDE_CASTLE) |
+               calculateCastlingRights(board, Alliance.BLACK, 4, BLACK_KING_SIDE_CASTLE, BLACK_QUEEN_SIDE_CASTLE);
+    }
+
+    public static int updateCastlingRights(final int castlingRights,
+                                           final int currentCoordinate,
+                                           final int destinationCoordinate) {
+        return castlingRights & CASTLING_RIGHTS_MASKS[currentCoordinate] & CASTLING_RIGHTS_MASKS[destinationCoordinate];
+    }
+
+    private static int calculateCastlingRights(final Board board,
+                                               final Alliance alliance,
+                                               final int kingCoordinate,
+                                               final int kingSide,
+                                               final int queenSide) {
+        final Piece king = board.getPiece(kingCoordinate);
+        if (!(king instanceof King) || king.getPieceAllegiance() != alliance || !king.isFirstMove()) {
+            return 0;
+        }
+        int castlingRights = 0;
+        if (((King) king).isKingSideCastleCapable() && isUnmovedRook(board.getPiece(kingCoordinate + 3), alliance)) {
+            castlingRights |= kingSide;
+        }
+        if (((King) king).isQueenSideCastleCapable() && isUnmovedRook(board.getPiece(kingCoordinate - 4), alliance)) {
+            castlingRights |= queenSide;
+        }
+        return castlingRights;
+    }
+
+    private static boolean isUnmovedRook(final Piece piece,
+                                         final Alliance alliance) {
+        return piece != null && piece.getPieceType() == Piece.PieceType.ROOK &&
+               piece.getPieceAllegiance() == alliance && piece.isFirstMove();
+    }
+
     public static boolean isThreatenedBoardImmediate(final Board board) {
         return board.whitePlayer().isInCheck() || board.blackPlayer().isInCheck();
     }
 
-    public static boolean kingThreat(final Move move) {
-        final Board board = move.getBoard();
+    public static boolean kingThreat(final Board board,
+                                     final Move move) {
         final MoveTransition transition = board.currentPlayer().makeMove(move);
         return transition.getToBoard().currentPlayer().isInCheck();
     }
@@ -117,20 +213,23 @@ public enum  BoardUtils {
         return Piece.PieceType.KING.getPieceValue() - movingPiece.getPieceValue();
     }
 
-    public static List<Move> lastNMoves(final Board board, int N) {
-        final List<Move> moveHistory = new ArrayList<>();
-        Move currentMove = board.getTransitionMove();
-        int i = 0;
-        while(currentMove != MoveFactory.getNullMove() && i < N) {
-            moveHistory.add(currentMove);
-            currentMove = currentMove.getBoard().getTransitionMove();
-            i++;
+    public static int mvvlva(final int encodedMove) {
+        final int movingValue = MoveEncoding.getMovedPieceType(encodedMove).getPieceValue();
+        if(MoveEncoding.isCapture(encodedMove)) {
+            final int attackedValue = MoveEncoding.getCapturedPieceType(encodedMove).getPieceValue();
+            return (attackedValue - movingValue + Piece.PieceType.KING.getPieceValue()) * 100;
         }
-        return Collections.unmodifiableList(moveHistory);
+        return Piece.PieceType.KING.getPieceValue() - movingValue;
+    }
+
+    /* At most MoveHistory.CAPACITY moves are remembered, whatever N asks for. */
+    public static List<Move> lastNMoves(final Board board, int N) {
+        final List<Move> moveHistory = board.getMoveHistory().getMoves();
+        return moveHistory.subList(0, Math.min(N, moveHistory.size()));
     }
 
+    /* Checkmate or stalemate, which both come down to the side to move having no legal move. */
     public static boolean isEndGame(final Board board) {
-        return board.currentPlayer().isInCheckMate() ||
-               board.currentPlayer().isInStaleMate();
+        return !board.currentPlayer().hasEscapeMoves();
     }
 }
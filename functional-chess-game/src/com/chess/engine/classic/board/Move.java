@@ -3,27 +3,24 @@ package com.chess.engine.classic.board;
 import com.chess.engine.classic.board.Board.Builder;
 import com.chess.engine.classic.pieces.Pawn;
 import com.chess.engine.classic.pieces.Piece;
+import com.chess.engine.classic.pieces.Piece.PieceType;
+import com.chess.engine.classic.pieces.PieceUtils;
 import com.chess.engine.classic.pieces.Rook;
 
 public abstract class Move {
 
-    protected final Board board;
     protected final int destinationCoordinate;
     protected final Piece movedPiece;
     protected final boolean isFirstMove;
 
-    private Move(final Board board,
-                 final Piece pieceMoved,
+    private Move(final Piece pieceMoved,
                  final int destinationCoordinate) {
-        this.board = board;
         this.destinationCoordinate = destinationCoordinate;
         this.movedPiece = pieceMoved;
         this.isFirstMove = pieceMoved.isFirstMove();
     }
 
-    private Move(final Board board,
-                 final int destinationCoordinate) {
-        this.board = board;
+    private Move(final int destinationCoordinate) {
         this.destinationCoordinate = destinationCoordinate;
         this.movedPiece = null;
         this.isFirstMove = false;
@@ -50,11 +47,7 @@ public abstract class Move {
         final Move otherMove = (Move) other;
         return getCurrentCoordinate() == otherMove.getCurrentCoordinate() &&
                getDestinationCoordinate() == otherMove.getDestinationCoordinate() &&
-               getMovedPiece().equals(otherMove.getMovedPiece());
-    }
-
-    public Board getBoard() {
-        return this.board;
+               getMovedPiece() == otherMove.getMovedPiece();
     }
 
     public int getCurrentCoordinate() {
@@ -81,31 +74,69 @@ public abstract class Move {
         return null;
     }
 
-    public Board execute() {
-        final Board.Builder builder = new Builder();
-        this.board.currentPlayer().getActivePieces().stream().filter(piece -> !this.movedPiece.equals(piece)).forEach(builder::setPiece);
-        this.board.currentPlayer().getOpponent().getActivePieces().forEach(builder::setPiece);
+    /*
+     * Moves hold no reference to the board they were generated on, so a retained move never
+     * keeps a position alive; the board is handed in when the move is played or taken back.
+     */
+    public Board execute(final Board board) {
+        final Board.Builder builder = new Builder(board);
+        builder.clearTile(getCurrentCoordinate());
         builder.setPiece(this.movedPiece.movePiece(this));
-        builder.setMoveMaker(this.board.currentPlayer().getOpponent().getAlliance());
+        builder.setMoveMaker(board.currentPlayer().getOpponent().getAlliance());
         builder.setMoveTransition(this);
+        builder.setCastlingRights(calculateCastlingRights(board));
+        builder.setZobristHash(calculateZobristHash(board, null));
         return builder.build();
     }
 
-    public Board undo() {
-        final Board.Builder builder = new Builder();
-        this.board.getAllPieces().forEach(builder::setPiece);
-        builder.setMoveMaker(this.board.currentPlayer().getAlliance());
+    /*
+     * Key of the position after this move, derived from the current key by XOR-ing out what
+     * leaves and XOR-ing in what arrives instead of rehashing the whole board.
+     */
+    long calculateZobristHash(final Board board,
+                              final Pawn enPassantPawn) {
+        final int currentCoordinate = getCurrentCoordinate();
+        long hash = board.getZobristHash() ^
+                    Zobrist.blackToMove() ^
+                    Zobrist.piece(this.movedPiece, currentCoordinate) ^
+                    Zobrist.piece(this.movedPiece, this.destinationCoordinate) ^
+                    Zobrist.castling(board.getCastlingRights()) ^
+                    Zobrist.castling(calculateCastlingRights(board)) ^
+                    Zobrist.enPassant(board.getEnPassantPawn()) ^
+                    Zobrist.enPassant(enPassantPawn);
+        final Piece attackedPiece = getAttackedPiece();
+        if (attackedPiece != null) {
+            hash ^= Zobrist.piece(attackedPiece, attackedPiece.getPiecePosition());
+        }
+        return hash;
+    }
+
+    /* Leaving or landing on a king or rook home square gives up the rights tied to it. */
+    int calculateCastlingRights(final Board board) {
+        return BoardUtils.updateCastlingRights(board.getCastlingRights(), getCurrentCoordinate(), this.destinationCoordinate);
+    }
+
+    /* Takes this move back on the board it produced, putting back what it moved and captured. */
+    public Board undo(final Board board) {
+        final Board.Builder builder = new Builder(board);
+        restorePieces(builder);
+        builder.setMoveMaker(this.movedPiece.getPieceAllegiance());
+        builder.setMoveHistory(board.getMoveHistory().pop());
         return builder.build();
     }
 
-    String disambiguationFile() {
-        for(final Move move : this.board.currentPlayer().getLegalMoves()) {
-            if(move.getDestinationCoordinate() == this.destinationCoordinate && !this.equals(move) &&
-               this.movedPiece.getPieceType().equals(move.getMovedPiece().getPieceType())) {
-                return BoardUtils.INSTANCE.getPositionAtCoordinate(this.movedPiece.getPiecePosition()).substring(0, 1);
-            }
+    void restorePieces(final Board.Builder builder) {
+        builder.clearTile(this.destinationCoordinate);
+        builder.setPiece(this.movedPiece);
+        final Piece attackedPiece = getAttackedPiece();
+        if (attackedPiece != null) {
+            builder.setPiece(attackedPiece);
         }
-        return "";
+    }
+
+    String disambiguationFile(final boolean isAmbiguous) {
+        return isAmbiguous ?
+                BoardUtils.INSTANCE.getPositionAtCoordinate(this.movedPiece.getPiecePosition()).substring(0, 1) : "";
     }
 
     public enum MoveStatus {
@@ -142,7 +173,7 @@ public abstract class Move {
 
         public PawnPromotion(final Move decoratedMove,
                              final Piece promotionPiece) {
-            super(decoratedMove.getBoard(), decoratedMove.getMovedPiece(), decoratedMove.getDestinationCoordinate());
+            super(decoratedMove.getMovedPiece(), decoratedMove.getDestinationCoordinate());
             this.decoratedMove = decoratedMove;
             this.promotedPawn = (Pawn) decoratedMove.getMovedPiece();
             this.promotionPiece = promotionPiece;
@@ -159,14 +190,16 @@ public abstract class Move {
         }
 
         @Override
-        public Board execute() {
-            final Board pawnMovedBoard = this.decoratedMove.execute();
-            final Board.Builder builder = new Builder();
-            pawnMovedBoard.currentPlayer().getActivePieces().stream().filter(piece -> !this.promotedPawn.equals(piece)).forEach(builder::setPiece);
-            pawnMovedBoard.currentPlayer().getOpponent().getActivePieces().forEach(builder::setPiece);
+        public Board execute(final Board board) {
+            final Board.Builder builder = new Builder(board);
+            builder.clearTile(getCurrentCoordinate());
             builder.setPiece(this.promotionPiece.movePiece(this));
-            builder.setMoveMaker(pawnMovedBoard.currentPlayer().getAlliance());
+            builder.setMoveMaker(board.currentPlayer().getOpponent().getAlliance());
             builder.setMoveTransition(this);
+            builder.setCastlingRights(calculateCastlingRights(board));
+            builder.setZobristHash(calculateZobristHash(board, null) ^
+                                   Zobrist.piece(this.promotedPawn, this.destinationCoordinate) ^
+                                   Zobrist.piece(this.promotionPiece, this.destinationCoordinate));
             return builder.build();
         }
 
@@ -191,10 +224,19 @@ public abstract class Move {
     public static class MajorMove
             extends Move {
 
-        public MajorMove(final Board board,
-                         final Piece pieceMoved,
+        private final boolean isAmbiguous;
+
+        public MajorMove(final Piece pieceMoved,
                          final int destinationCoordinate) {
-            super(board, pieceMoved, destinationCoordinate);
+            this(pieceMoved, destinationCoordinate, false);
+        }
+
+        /* isAmbiguous when another piece of the same type can also reach the destination. */
+        public MajorMove(final Piece pieceMoved,
+                         final int destinationCoordinate,
+                         final boolean isAmbiguous) {
+            super(pieceMoved, destinationCoordinate);
+            this.isAmbiguous = isAmbiguous;
         }
 
         @Override
@@ -204,7 +246,7 @@ public abstract class Move {
 
         @Override
         public String toString() {
-            return movedPiece.getPieceType().toString() + disambiguationFile() +
+            return movedPiece.getPieceType().toString() + disambiguationFile(this.isAmbiguous) +
                    BoardUtils.INSTANCE.getPositionAtCoordinate(this.destinationCoordinate);
         }
 
@@ -213,11 +255,20 @@ public abstract class Move {
     public static class MajorAttackMove
             extends AttackMove {
 
-        public MajorAttackMove(final Board board,
-                               final Piece pieceMoved,
+        private final boolean isAmbiguous;
+
+        public MajorAttackMove(final Piece pieceMoved,
                                final int destinationCoordinate,
                                final Piece pieceAttacked) {
-            super(board, pieceMoved, destinationCoordinate, pieceAttacked);
+            this(pieceMoved, destinationCoordinate, pieceAttacked, false);
+        }
+
+        public MajorAttackMove(final Piece pieceMoved,
+                               final int destinationCoordinate,
+                               final Piece pieceAttacked,
+                               final boolean isAmbiguous) {
+            super(pieceMoved, destinationCoordinate, pieceAttacked);
+            this.isAmbiguous = isAmbiguous;
         }
 
         @Override
@@ -228,7 +279,7 @@ public abstract class Move {
 
         @Override
         public String toString() {
-            return movedPiece.getPieceType() + disambiguationFile() + "x" +
+            return movedPiece.getPieceType() + disambiguationFile(this.isAmbiguous) + "x" +
                    BoardUtils.INSTANCE.getPositionAtCoordinate(this.destinationCoordinate);
         }
 
@@ -237,10 +288,9 @@ public abstract class Move {
     public static class PawnMove
             extends Move {
 
-        public PawnMove(final Board board,
-                        final Piece pieceMoved,
+        public PawnMove(final Piece pieceMoved,
                         final int destinationCoordinate) {
-            super(board, pieceMoved, destinationCoordinate);
+            super(pieceMoved, destinationCoordinate);
         }
 
         @Override
@@ -258,11 +308,10 @@ public abstract class Move {
     public static class PawnAttackMove
             extends AttackMove {
 
-        public PawnAttackMove(final Board board,
-                              final Piece pieceMoved,
+        public PawnAttackMove(final Piece pieceMoved,
                               final int destinationCoordinate,
                               final Piece pieceAttacked) {
-            super(board, pieceMoved, destinationCoordinate, pieceAttacked);
+            super(pieceMoved, destinationCoordinate, pieceAttacked);
         }
 
         @Override
@@ -280,11 +329,10 @@ public abstract class Move {
 
     public static class PawnEnPassantAttack extends PawnAttackMove {
 
-        public PawnEnPassantAttack(final Board board,
-                                   final Piece pieceMoved,
+        public PawnEnPassantAttack(final Piece pieceMoved,
                                    final int destinationCoordinate,
                                    final Piece pieceAttacked) {
-            super(board, pieceMoved, destinationCoordinate, pieceAttacked);
+            super(pieceMoved, destinationCoordinate, pieceAttacked);
         }
 
         @Override
@@ -293,23 +341,22 @@ public abstract class Move {
         }
 
         @Override
-        public Board execute() {
-            final Board.Builder builder = new Builder();
-            this.board.currentPlayer().getActivePieces().stream().filter(piece -> !this.movedPiece.equals(piece)).forEach(builder::setPiece);
-            this.board.currentPlayer().getOpponent().getActivePieces().stream().filter(piece -> !piece.equals(this.getAttackedPiece())).forEach(builder::setPiece);
+        public Board execute(final Board board) {
+            final Board.Builder builder = new Builder(board);
+            builder.clearTile(getCurrentCoordinate());
+            builder.clearTile(getAttackedPiece().getPiecePosition());
             builder.setPiece(this.movedPiece.movePiece(this));
-            builder.setMoveMaker(this.board.currentPlayer().getOpponent().getAlliance());
+            builder.setMoveMaker(board.currentPlayer().getOpponent().getAlliance());
             builder.setMoveTransition(this);
+            builder.setCastlingRights(calculateCastlingRights(board));
+            builder.setZobristHash(calculateZobristHash(board, null));
             return builder.build();
         }
 
         @Override
-        public Board undo() {
-            final Board.Builder builder = new Builder();
-            this.board.getAllPieces().forEach(builder::setPiece);
+        void restorePieces(final Board.Builder builder) {
+            super.restorePieces(builder);
             builder.setEnPassantPawn((Pawn)this.getAttackedPiece());
-            builder.setMoveMaker(this.board.currentPlayer().getAlliance());
-            return builder.build();
         }
 
     }
@@ -317,10 +364,9 @@ public abstract class Move {
     public static class PawnJump
             extends Move {
 
-        public PawnJump(final Board board,
-                        final Pawn pieceMoved,
+        public PawnJump(final Pawn pieceMoved,
                         final int destinationCoordinate) {
-            super(board, pieceMoved, destinationCoordinate);
+            super(pieceMoved, destinationCoordinate);
         }
 
         @Override
@@ -329,15 +375,16 @@ public abstract class Move {
         }
 
         @Override
-        public Board execute() {
-            final Board.Builder builder = new Builder();
-            this.board.currentPlayer().getActivePieces().stream().filter(piece -> !this.movedPiece.equals(piece)).forEach(builder::setPiece);
-            this.board.currentPlayer().getOpponent().getActivePieces().forEach(builder::setPiece);
+        public Board execute(final Board board) {
+            final Board.Builder builder = new Builder(board);
+            builder.clearTile(getCurrentCoordinate());
             final Pawn movedPawn = (Pawn)this.movedPiece.movePiece(this);
             builder.setPiece(movedPawn);
             builder.setEnPassantPawn(movedPawn);
-            builder.setMoveMaker(this.board.currentPlayer().getOpponent().getAlliance());
+            builder.setMoveMaker(board.currentPlayer().getOpponent().getAlliance());
             builder.setMoveTransition(this);
+            builder.setCastlingRights(calculateCastlingRights(board));
+            builder.setZobristHash(calculateZobristHash(board, movedPawn));
             return builder.build();
         }
 
@@ -355,13 +402,12 @@ public abstract class Move {
         final int castleRookStart;
         final int castleRookDestination;
 
-        CastleMove(final Board board,
-                   final Piece pieceMoved,
+        CastleMove(final Piece pieceMoved,
                    final int destinationCoordinate,
                    final Rook castleRook,
                    final int castleRookStart,
                    final int castleRookDestination) {
-            super(board, pieceMoved, destinationCoordinate);
+            super(pieceMoved, destinationCoordinate);
             this.castleRook = castleRook;
             this.castleRookStart = castleRookStart;
             this.castleRookDestination = castleRookDestination;
@@ -377,21 +423,35 @@ public abstract class Move {
         }
 
         @Override
-        public Board execute() {
-            final Board.Builder builder = new Builder();
-            for (final Piece piece : this.board.getAllPieces()) {
-                if (!this.movedPiece.equals(piece) && !this.castleRook.equals(piece)) {
-                    builder.setPiece(piece);
-                }
-            }
+        public Board execute(final Board board) {
+            final Board.Builder builder = new Builder(board);
+            builder.clearTile(getCurrentCoordinate());
+            builder.clearTile(this.castleRookStart);
             builder.setPiece(this.movedPiece.movePiece(this));
-            //calling movePiece here doesn't work, we need to explicitly create a new Rook
-            builder.setPiece(new Rook(this.castleRook.getPieceAllegiance(), this.castleRookDestination, false));
-            builder.setMoveMaker(this.board.currentPlayer().getOpponent().getAlliance());
+            //calling movePiece here doesn't work, the rook is not the piece being moved
+            builder.setPiece(PieceUtils.INSTANCE.getPiece(PieceType.ROOK, this.castleRook.getPieceAllegiance(), this.castleRookDestination, false));
+            builder.setMoveMaker(board.currentPlayer().getOpponent().getAlliance());
             builder.setMoveTransition(this);
+            builder.setCastlingRights(calculateCastlingRights(board));
+            builder.setZobristHash(calculateZobristHash(board, null));
             return builder.build();
         }
 
+        @Override
+        void restorePieces(final Board.Builder builder) {
+            super.restorePieces(builder);
+            builder.clearTile(this.castleRookDestination);
+            builder.setPiece(this.castleRook);
+        }
+
+        @Override
+        long calculateZobristHash(final Board board,
+                                  final Pawn enPassantPawn) {
+            return super.calculateZobristHash(board, enPassantPawn) ^
+                   Zobrist.piece(this.castleRook, this.castleRookStart) ^
+                   Zobrist.piece(this.castleRook, this.castleRookDestination);
+        }
+
         @Override
         public int hashCode() {
             final int prime = 31;
@@ -410,7 +470,7 @@ public abstract class Move {
                 return false;
             }
             final CastleMove otherCastleMove = (CastleMove) other;
-            return super.equals(otherCastleMove) && this.castleRook.equals(otherCastleMove.getCastleRook());
+            return super.equals(otherCastleMove) && this.castleRook == otherCastleMove.getCastleRook();
         }
 
     }
@@ -418,13 +478,12 @@ public abstract class Move {
     public static class KingSideCastleMove
             extends CastleMove {
 
-        public KingSideCastleMove(final Board board,
-                                  final Piece pieceMoved,
+        public KingSideCastleMove(final Piece pieceMoved,
                                   final int destinationCoordinate,
                                   final Rook castleRook,
                                   final int castleRookStart,
                                   final int castleRookDestination) {
-            super(board, pieceMoved, destinationCoordinate, castleRook, castleRookStart,
+            super(pieceMoved, destinationCoordinate, castleRook, castleRookStart,
                     castleRookDestination);
         }
 
@@ -437,7 +496,7 @@ public abstract class Move {
                 return false;
             }
             final KingSideCastleMove otherKingSideCastleMove = (KingSideCastleMove) other;
-            return super.equals(otherKingSideCastleMove) && this.castleRook.equals(otherKingSideCastleMove.getCastleRook());
+            return super.equals(otherKingSideCastleMove) && this.castleRook == otherKingSideCastleMove.getCastleRook();
         }
 
         @Override
@@ -450,13 +509,12 @@ public abstract class Move {
     public static class QueenSideCastleMove
             extends CastleMove {
 
-        public QueenSideCastleMove(final Board board,
-                                   final Piece pieceMoved,
+        public QueenSideCastleMove(final Piece pieceMoved,
                                    final int destinationCoordinate,
                                    final Rook castleRook,
                                    final int castleRookStart,
                                    final int rookCastleDestination) {
-            super(board, pieceMoved, destinationCoordinate, castleRook, castleRookStart,
+            super(pieceMoved, destinationCoordinate, castleRook, castleRookStart,
                     rookCastleDestination);
         }
 
@@ -469,7 +527,7 @@ public abstract class Move {
                 return false;
             }
             final QueenSideCastleMove otherQueenSideCastleMove = (QueenSideCastleMove) other;
-            return super.equals(otherQueenSideCastleMove) && this.castleRook.equals(otherQueenSideCastleMove.getCastleRook());
+            return super.equals(otherQueenSideCastleMove) && this.castleRook == otherQueenSideCastleMove.getCastleRook();
         }
 
         @Override
@@ -484,11 +542,10 @@ public abstract class Move {
 
         private final Piece attackedPiece;
 
-        AttackMove(final Board board,
-                   final Piece pieceMoved,
+        AttackMove(final Piece pieceMoved,
                    final int destinationCoordinate,
                    final Piece pieceAttacked) {
-            super(board, pieceMoved, destinationCoordinate);
+            super(pieceMoved, destinationCoordinate);
             this.attackedPiece = pieceAttacked;
         }
 
@@ -506,7 +563,7 @@ public abstract class Move {
                 return false;
             }
             final AttackMove otherAttackMove = (AttackMove) other;
-            return super.equals(otherAttackMove) && getAttackedPiece().equals(otherAttackMove.getAttackedPiece());
+            return super.equals(otherAttackMove) && getAttackedPiece() == otherAttackMove.getAttackedPiece();
         }
 
         @Override
@@ -525,7 +582,7 @@ public abstract class Move {
             extends Move {
 
         private NullMove() {
-            super(null, -1);
+            super(-1);
         }
 
         @Override
@@ -539,10 +596,15 @@ public abstract class Move {
         }
 
         @Override
-        public Board execute() {
+        public Board execute(final Board board) {
             throw new RuntimeException("cannot execute null move!");
         }
 
+        @Override
+        public Board undo(final Board board) {
+            throw new RuntimeException("cannot undo null move!");
+        }
+
         @Override
         public String toString() {
             return "Null Move";
@@ -564,13 +626,17 @@ public abstract class Move {
         public static Move createMove(final Board board,
                                       final int currentCoordinate,
                                       final int destinationCoordinate) {
-            for (final Move move : board.getAllLegalMoves()) {
-                if (move.getCurrentCoordinate() == currentCoordinate &&
-                    move.getDestinationCoordinate() == destinationCoordinate) {
-                    return move;
-                }
-            }
-            return NULL_MOVE;
+            final Move move = board.currentPlayer().getMoveIndex().getMove(currentCoordinate, destinationCoordinate);
+            return move != NULL_MOVE ? move :
+                    board.currentPlayer().getOpponent().getMoveIndex().getMove(currentCoordinate, destinationCoordinate);
+        }
+
+        /* Turns an encoded search move back into the matching Board move, for the GUI and PGN. */
+        public static Move createMove(final Board board,
+                                      final int encodedMove) {
+            return board.currentPlayer().getMoveIndex().getMove(MoveEncoding.getFrom(encodedMove),
+                    MoveEncoding.getTo(encodedMove),
+                    MoveEncoding.isPromotion(encodedMove) ? MoveEncoding.getPromotionType(encodedMove) : null);
         }
     }
 }
\ No newline at end of file
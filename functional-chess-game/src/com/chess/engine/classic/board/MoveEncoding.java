@@ -0,0 +1,101 @@
+package com.chess.engine.classic.board;
+
+import com.chess.engine.classic.pieces.Piece.PieceType;
+
+/*
+ * Packs a move into an int so the search can generate, store and compare moves without
+ * allocating. The low 16 bits identify the move on their own:
+ *
+ *   bits 0-5    from coordinate
+ *   bits 6-11   to coordinate
+ *   bits 12-15  flags, with the promotion piece in the low two bits when PROMOTION is set
+ *
+ * and the upper bits carry what ordering and make/unmake need without reading the board:
+ *
+ *   bits 16-18  moved piece type
+ *   bits 19-21  captured piece type + 1, or 0 when nothing is captured
+ */
+public final class MoveEncoding {
+
+    public static final int NULL_MOVE = 0;
+
+    public static final int QUIET = 0;
+    public static final int DOUBLE_PAWN_PUSH = 1;
+    public static final int KING_CASTLE = 2;
+    public static final int QUEEN_CASTLE = 3;
+    public static final int CAPTURE = 4;
+    public static final int EN_PASSANT = 5;
+    public static final int PROMOTION = 8;
+
+    private static final PieceType[] PIECE_TYPES = PieceType.values();
+    private static final PieceType[] PROMOTION_TYPES = {
+            PieceType.KNIGHT, PieceType.BISHOP, PieceType.ROOK, PieceType.QUEEN
+    };
+
+    private MoveEncoding() {
+        throw new RuntimeException("Not instantiatable!");
+    }
+
+    /* capturedType is the captured piece's ordinal, or -1 for a non-capture. */
+    public static int create(final int from,
+                             final int to,
+                             final int flags,
+                             final int movedType,
+                             final int capturedType) {
+        return from | (to << 6) | (flags << 12) | (movedType << 16) | ((capturedType + 1) << 19);
+    }
+
+    public static int getFrom(final int move) {
+        return move & 0x3F;
+    }
+
+    public static int getTo(final int move) {
+        return (move >>> 6) & 0x3F;
+    }
+
+    public static int getFlags(final int move) {
+        return (move >>> 12) & 0xF;
+    }
+
+    /* The from/to/flags part, enough to tell two moves from the same position apart. */
+    public static int getKey(final int move) {
+        return move & 0xFFFF;
+    }
+
+    public static PieceType getMovedPieceType(final int move) {
+        return PIECE_TYPES[(move >>> 16) & 0x7];
+    }
+
+    public static PieceType getCapturedPieceType(final int move) {
+        final int capturedType = (move >>> 19) & 0x7;
+        return capturedType == 0 ? null : PIECE_TYPES[capturedType - 1];
+    }
+
+    public static boolean isCapture(final int move) {
+        return (getFlags(move) & CAPTURE) != 0;
+    }
+
+    public static boolean isEnPassant(final int move) {
+        return getFlags(move) == EN_PASSANT;
+    }
+
+    public static boolean isCastle(final int move) {
+        final int flags = getFlags(move);
+        return flags == KING_CASTLE || flags == QUEEN_CASTLE;
+    }
+
+    public static boolean isPromotion(final int move) {
+        return (getFlags(move) & PROMOTION) != 0;
+    }
+
+    public static PieceType getPromotionType(final int move) {
+        return PROMOTION_TYPES[getFlags(move) & 3];
+    }
+
+    public static String toString(final int move) {
+        final String text = BoardUtils.INSTANCE.getPositionAtCoordinate(getFrom(move)) + "-" +
+                            BoardUtils.INSTANCE.getPositionAtCoordinate(getTo(move));
+        return isPromotion(move) ? text + "=" + getPromotionType(move) : text;
+    }
+
+}
@@ -0,0 +1,50 @@
+package com.chess.engine.classic.board;
+
+import com.chess.engine.classic.board.Move.MoveFactory;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/*
+ * The last few moves that led to a board, newest first. Holding at most CAPACITY moves, and
+ * moves holding no boards, means a board kept by the move log, the GUI or a cache pins only
+ * itself rather than every position back to the start of the game.
+ */
+public final class MoveHistory {
+
+    public static final int CAPACITY = 16;
+
+    static final MoveHistory EMPTY = new MoveHistory(new Move[0]);
+
+    private final Move[] moves;
+
+    private MoveHistory(final Move[] moves) {
+        this.moves = moves;
+    }
+
+    MoveHistory push(final Move move) {
+        final Move[] pushed = new Move[Math.min(CAPACITY, this.moves.length + 1)];
+        pushed[0] = move;
+        System.arraycopy(this.moves, 0, pushed, 1, pushed.length - 1);
+        return new MoveHistory(pushed);
+    }
+
+    MoveHistory pop() {
+        return this.moves.length == 0 ? this : new MoveHistory(Arrays.copyOfRange(this.moves, 1, this.moves.length));
+    }
+
+    public int size() {
+        return this.moves.length;
+    }
+
+    /* The move played pliesAgo plies back, zero being the last one, or the null move once it has dropped out. */
+    public Move getMove(final int pliesAgo) {
+        return pliesAgo < this.moves.length ? this.moves[pliesAgo] : MoveFactory.getNullMove();
+    }
+
+    public List<Move> getMoves() {
+        return Collections.unmodifiableList(Arrays.asList(this.moves));
+    }
+
+}
@@ -0,0 +1,99 @@
+package com.chess.engine.classic.board;
+
+import com.chess.engine.classic.board.Move.MoveFactory;
+import com.chess.engine.classic.board.Move.PawnPromotion;
+import com.chess.engine.classic.pieces.Piece.PieceType;
+
+import java.util.Collection;
+
+/*
+ * Constant time lookup of a position's moves by (from, to, promotion), built once from the
+ * generated moves. An open addressed table keyed by the packed coordinates replaces the scans
+ * over the legal move list done by makeMove, the GUI and PGN import.
+ *
+ * Looking a promotion up without naming the piece finds the queen promotion, which is the one
+ * the pawn generates first.
+ */
+public final class MoveIndex {
+
+    private static final int EMPTY = 0;
+
+    private final int[] keys;
+    private final Move[] moves;
+    private final int mask;
+    private final int size;
+
+    public MoveIndex(final Collection<Move> moves) {
+        final int capacity = Integer.highestOneBit(Math.max(4, 4 * moves.size() - 1)) << 1;
+        this.keys = new int[capacity];
+        this.moves = new Move[capacity];
+        this.mask = capacity - 1;
+        for (final Move move : moves) {
+            final PieceType promotionType = promotionType(move);
+            insert(key(move.getCurrentCoordinate(), move.getDestinationCoordinate(), promotionType), move);
+            if (promotionType != null) {
+                insert(key(move.getCurrentCoordinate(), move.getDestinationCoordinate(), null), move);
+            }
+        }
+        this.size = moves.size();
+    }
+
+    public Move getMove(final int currentCoordinate,
+                        final int destinationCoordinate) {
+        return getMove(currentCoordinate, destinationCoordinate, null);
+    }
+
+    public Move getMove(final int currentCoordinate,
+                        final int destinationCoordinate,
+                        final PieceType promotionType) {
+        if (!BoardUtils.isValidTileCoordinate(currentCoordinate) || !BoardUtils.isValidTileCoordinate(destinationCoordinate)) {
+            return MoveFactory.getNullMove();
+        }
+        final int key = key(currentCoordinate, destinationCoordinate, promotionType);
+        for (int slot = hash(key); this.keys[slot] != EMPTY; slot = (slot + 1) & this.mask) {
+            if (this.keys[slot] == key) {
+                return this.moves[slot];
+            }
+        }
+        return MoveFactory.getNullMove();
+    }
+
+    public boolean contains(final Move move) {
+        final Move indexed = getMove(move.getCurrentCoordinate(), move.getDestinationCoordinate(), promotionType(move));
+        return indexed == move || indexed.equals(move);
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    private void insert(final int key,
+                        final Move move) {
+        int slot = hash(key);
+        while (this.keys[slot] != EMPTY) {
+            if (this.keys[slot] == key) {
+                return;
+            }
+            slot = (slot + 1) & this.mask;
+        }
+        this.keys[slot] = key;
+        this.moves[slot] = move;
+    }
+
+    private int hash(final int key) {
+        return (key * 0x9E3779B9 >>> 16) & this.mask;
+    }
+
+    /* PieceType ordinals of the promotion pieces start at one, so zero can stand for none. */
+    private static int key(final int currentCoordinate,
+                           final int destinationCoordinate,
+                           final PieceType promotionType) {
+        return ((currentCoordinate << 9) | (destinationCoordinate << 3) |
+                (promotionType != null ? promotionType.ordinal() : 0)) + 1;
+    }
+
+    private static PieceType promotionType(final Move move) {
+        return move instanceof PawnPromotion ? ((PawnPromotion) move).promotionPiece.getPieceType() : null;
+    }
+
+}
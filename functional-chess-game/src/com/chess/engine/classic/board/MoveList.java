@@ -0,0 +1,85 @@
+package com.chess.engine.classic.board;
+
+/*
+ * Fixed-capacity list of encoded moves with a parallel array of ordering scores. The search
+ * keeps one per ply and clears it instead of allocating a new collection at every node.
+ */
+public final class MoveList {
+
+    public static final int MAX_MOVES = 256;
+
+    private final int[] moves;
+    private final int[] scores;
+    private int size;
+
+    public MoveList() {
+        this.moves = new int[MAX_MOVES];
+        this.scores = new int[MAX_MOVES];
+        this.size = 0;
+    }
+
+    public void clear() {
+        this.size = 0;
+    }
+
+    public void add(final int move) {
+        this.moves[this.size++] = move;
+    }
+
+    public int get(final int index) {
+        return this.moves[index];
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    public boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    public int getScore(final int index) {
+        return this.scores[index];
+    }
+
+    public void setScore(final int index,
+                         final int score) {
+        this.scores[index] = score;
+    }
+
+    public void swap(final int i,
+                     final int j) {
+        final int move = this.moves[i];
+        final int score = this.scores[i];
+        this.moves[i] = this.moves[j];
+        this.scores[i] = this.scores[j];
+        this.moves[j] = move;
+        this.scores[j] = score;
+    }
+
+    /* Orders the moves by descending score; ties keep their generation order. */
+    public void sort() {
+        for (int i = 1; i < this.size; i++) {
+            final int move = this.moves[i];
+            final int score = this.scores[i];
+            int j = i - 1;
+            while (j >= 0 && this.scores[j] < score) {
+                this.moves[j + 1] = this.moves[j];
+                this.scores[j + 1] = this.scores[j];
+                j--;
+            }
+            this.moves[j + 1] = move;
+            this.scores[j + 1] = score;
+        }
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder builder = new StringBuilder("[");
+        for (int i = 0; i < this.size; i++) {
+            builder.append(i == 0 ? "" : ", ").append(MoveEncoding.toString(this.moves[i]));
+        }
+        return builder.append("]").toString();
+    }
+
+}
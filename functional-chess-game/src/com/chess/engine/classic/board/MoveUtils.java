@@ -1,19 +1,18 @@
 package com.chess.engine.classic.board;
 
-import static com.chess.engine.classic.board.Move.*;
-
 public enum MoveUtils {
 
     INSTANCE;
 
-    public static int exchangeScore(final Move move) {
-        if(move == MoveFactory.getNullMove()) {
-            return 1;
+    /* Five times over for every capture among the remembered moves that led to the board. */
+    public static int exchangeScore(final Board board) {
+        int score = 1;
+        for (final Move move : board.getMoveHistory().getMoves()) {
+            if (move.isAttack()) {
+                score *= 5;
+            }
         }
-        return move.isAttack() ?
-                5 * exchangeScore(move.getBoard().getTransitionMove()) :
-                exchangeScore(move.getBoard().getTransitionMove());
-
+        return score;
     }
 
 }
@@ -0,0 +1,155 @@
+package com.chess.engine.classic.board;
+
+import com.chess.engine.classic.Alliance;
+import com.chess.engine.classic.pieces.Pawn;
+import com.chess.engine.classic.pieces.Piece;
+import com.chess.engine.classic.pieces.Piece.PieceType;
+import com.chess.engine.classic.pieces.PieceUtils;
+
+import java.util.Arrays;
+
+/*
+ * Canonical fixed size binary form of a position, for opening books, position indexes and
+ * caches that hold far more positions than Board objects could. Two positions are the same
+ * exactly when their bytes are, so instances can be compared and hashed without decoding.
+ *
+ * Layout, SIZE bytes:
+ *   0 - 7   occupancy bitmap, big endian, bit i set when tile coordinate i holds a piece
+ *   8 - 23  one nibble per occupied tile in coordinate order, alliance * 6 + piece type,
+ *           high nibble first; unused nibbles are zero
+ *   24      bit 0 black to move, bits 1 - 4 castling rights, bit 5 white castled,
+ *           bit 6 black castled
+ *   25      file of the pawn that just jumped, or NO_EN_PASSANT
+ *
+ * Move counters are not part of a position and are not stored, as in createFENFromGame.
+ */
+public final class PackedPosition {
+
+    public static final int SIZE = 26;
+
+    private static final int MAX_PIECES = 32;
+    private static final int PIECES_OFFSET = 8;
+    private static final int FLAGS_OFFSET = 24;
+    private static final int EN_PASSANT_OFFSET = 25;
+    private static final int BLACK_TO_MOVE = 1;
+    private static final int CASTLING_SHIFT = 1;
+    private static final int WHITE_CASTLED = 1 << 5;
+    private static final int BLACK_CASTLED = 1 << 6;
+    private static final int NO_EN_PASSANT = 0xFF;
+
+    private final byte[] bytes;
+    private final int hashCode;
+
+    private PackedPosition(final byte[] bytes) {
+        this.bytes = bytes;
+        this.hashCode = Arrays.hashCode(bytes);
+    }
+
+    public static PackedPosition of(final Board board) {
+        final byte[] bytes = new byte[SIZE];
+        final long occupancy = board.getBitBoard().getOccupancy();
+        if (Long.bitCount(occupancy) > MAX_PIECES) {
+            throw new RuntimeException("Cannot pack a position with more than " + MAX_PIECES + " pieces");
+        }
+        for (int i = 0; i < Long.BYTES; i++) {
+            bytes[i] = (byte) (occupancy >>> (56 - 8 * i));
+        }
+        long remaining = occupancy;
+        for (int nibble = 0; remaining != 0; nibble++) {
+            final Piece piece = board.getPiece(Long.numberOfTrailingZeros(remaining));
+            final int code = BitBoard.index(piece.getPieceAllegiance(), piece.getPieceType());
+            bytes[PIECES_OFFSET + nibble / 2] |= (nibble & 1) == 0 ? code << 4 : code;
+            remaining &= remaining - 1;
+        }
+        bytes[FLAGS_OFFSET] = (byte) ((board.currentPlayer().getAlliance().isBlack() ? BLACK_TO_MOVE : 0) |
+                                      (board.getCastlingRights() << CASTLING_SHIFT) |
+                                      (board.whitePlayer().isCastled() ? WHITE_CASTLED : 0) |
+                                      (board.blackPlayer().isCastled() ? BLACK_CASTLED : 0));
+        final Pawn enPassantPawn = board.getEnPassantPawn();
+        bytes[EN_PASSANT_OFFSET] = (byte) (enPassantPawn != null ?
+                BoardUtils.getColumn(enPassantPawn.getPiecePosition()) : NO_EN_PASSANT);
+        return new PackedPosition(bytes);
+    }
+
+    public static PackedPosition fromBytes(final byte[] bytes) {
+        if (bytes.length != SIZE) {
+            throw new RuntimeException("Invalid packed position length " + bytes.length);
+        }
+        return new PackedPosition(bytes.clone());
+    }
+
+    public byte[] toBytes() {
+        return this.bytes.clone();
+    }
+
+    public Board toBoard() {
+        long occupancy = 0L;
+        for (int i = 0; i < Long.BYTES; i++) {
+            occupancy = (occupancy << 8) | (this.bytes[i] & 0xFF);
+        }
+        final int flags = this.bytes[FLAGS_OFFSET];
+        final int castlingRights = (flags >>> CASTLING_SHIFT) & 0xF;
+        final Alliance moveMaker = (flags & BLACK_TO_MOVE) != 0 ? Alliance.BLACK : Alliance.WHITE;
+        final Board.Builder builder = new Board.Builder();
+        for (int nibble = 0; occupancy != 0; nibble++) {
+            final int coordinate = Long.numberOfTrailingZeros(occupancy);
+            final int packed = this.bytes[PIECES_OFFSET + nibble / 2];
+            final int code = ((nibble & 1) == 0 ? packed >>> 4 : packed) & 0xF;
+            builder.setPiece(createPiece(code, coordinate, flags, castlingRights));
+            occupancy &= occupancy - 1;
+        }
+        final int enPassantFile = this.bytes[EN_PASSANT_OFFSET] & 0xFF;
+        if (enPassantFile != NO_EN_PASSANT) {
+            /* the pawn that jumped belongs to the side that just moved and stands on its fourth rank */
+            final int row = moveMaker.isWhite() ? 3 : 4;
+            final Piece pawn = builder.tiles.get(row * BoardUtils.NUM_TILES_PER_ROW + enPassantFile);
+            if (!(pawn instanceof Pawn)) {
+                throw new RuntimeException("Invalid packed position en passant file " + enPassantFile);
+            }
+            builder.setEnPassantPawn((Pawn) pawn);
+        }
+        builder.setMoveMaker(moveMaker);
+        builder.setCastlingRights(castlingRights);
+        return builder.build();
+    }
+
+    private static Piece createPiece(final int code,
+                                     final int coordinate,
+                                     final int flags,
+                                     final int castlingRights) {
+        if (code >= 2 * BitBoard.NUM_PIECE_TYPES) {
+            throw new RuntimeException("Invalid packed piece code " + code);
+        }
+        final Alliance alliance = code < BitBoard.NUM_PIECE_TYPES ? Alliance.WHITE : Alliance.BLACK;
+        final PieceType pieceType = PieceType.values()[code % BitBoard.NUM_PIECE_TYPES];
+        if (pieceType != PieceType.KING) {
+            return PieceUtils.INSTANCE.getPiece(pieceType, alliance, coordinate);
+        }
+        if ((flags & (alliance.isWhite() ? WHITE_CASTLED : BLACK_CASTLED)) != 0) {
+            return PieceUtils.INSTANCE.getKing(alliance, coordinate, false, true, false, false);
+        }
+        return PieceUtils.INSTANCE.getKing(alliance, coordinate,
+                (castlingRights & (alliance.isWhite() ? BoardUtils.WHITE_KING_SIDE_CASTLE : BoardUtils.BLACK_KING_SIDE_CASTLE)) != 0,
+                (castlingRights & (alliance.isWhite() ? BoardUtils.WHITE_QUEEN_SIDE_CASTLE : BoardUtils.BLACK_QUEEN_SIDE_CASTLE)) != 0);
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+        return this == other || other instanceof PackedPosition && Arrays.equals(this.bytes, ((PackedPosition) other).bytes);
+    }
+
+    @Override
+    public int hashCode() {
+        return this.hashCode;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder builder = new StringBuilder(2 * SIZE);
+        for (final byte b : this.bytes) {
+            builder.append(String.format("%02x", b));
+        }
+        return builder.toString();
+    }
+
+}
@@ -0,0 +1,272 @@
+package com.chess.engine.classic.board;
+
+import com.chess.engine.classic.board.Move.PawnPromotion;
+import com.chess.pgn.FenUtilities;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/*
+ * Counts the leaf nodes of the legal move tree below a position, using Board, Player and the
+ * Piece.calculateLegalMoves generators exactly as the GUI and the Board based strategies do.
+ * The counts can be checked against published perft numbers, and the node rate measures the
+ * move generation stack. Subtrees are split across a fork/join pool; an optional hash table
+ * keyed by the Zobrist hash lets transpositions be counted once.
+ *
+ * usage: Perft [-divide] [-hash <megabytes>] [-threads <n>] <depth> [fen]
+ */
+public final class Perft {
+
+    private static final String START_FEN = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+    private static final int SPLIT_DEPTH = 3;
+
+    private final ForkJoinPool pool;
+    private final PerftCache cache;
+
+    public Perft(final int parallelism,
+                 final int hashMegabytes) {
+        this.pool = new ForkJoinPool(parallelism);
+        this.cache = hashMegabytes > 0 ? new PerftCache(hashMegabytes) : null;
+    }
+
+    public PerftResult perft(final Board board,
+                             final int depth) {
+        final long startTime = System.nanoTime();
+        final long nodes = this.pool.invoke(new PerftTask(board, depth, this.cache));
+        return new PerftResult(nodes, System.nanoTime() - startTime, Collections.emptyMap());
+    }
+
+    /* Splits the count by root move, the usual first step in tracking down a generator bug. */
+    public PerftResult divide(final Board board,
+                              final int depth) {
+        final long startTime = System.nanoTime();
+        final List<Move> rootMoves = new ArrayList<>();
+        final List<PerftTask> subtrees = new ArrayList<>();
+        for (final Move move : board.currentPlayer().getLegalMoves()) {
+            final MoveTransition transition = board.currentPlayer().makeMove(move);
+            if (transition.getMoveStatus().isDone()) {
+                rootMoves.add(move);
+                subtrees.add(new PerftTask(transition.getToBoard(), depth - 1, this.cache));
+            }
+        }
+        final Map<String, Long> counts = new LinkedHashMap<>();
+        long nodes = 0;
+        for (int i = 0; i < subtrees.size(); i++) {
+            final long subtreeNodes = this.pool.invoke(subtrees.get(i));
+            counts.put(coordinateNotation(rootMoves.get(i)), subtreeNodes);
+            nodes += subtreeNodes;
+        }
+        return new PerftResult(nodes, System.nanoTime() - startTime, counts);
+    }
+
+    public void shutdown() {
+        this.pool.shutdown();
+    }
+
+    private static long perft(final Board board,
+                              final int depth,
+                              final PerftCache cache) {
+        if (depth <= 0) {
+            return 1;
+        }
+        if (cache != null) {
+            final long cached = cache.probe(board.getZobristHash(), depth);
+            if (cached >= 0) {
+                return cached;
+            }
+        }
+        long nodes = 0;
+        for (final Move move : board.currentPlayer().getLegalMoves()) {
+            final MoveTransition transition = board.currentPlayer().makeMove(move);
+            if (transition.getMoveStatus().isDone()) {
+                nodes += depth == 1 ? 1 : perft(transition.getToBoard(), depth - 1, cache);
+            }
+        }
+        if (cache != null) {
+            cache.store(board.getZobristHash(), depth, nodes);
+        }
+        return nodes;
+    }
+
+    private static String coordinateNotation(final Move move) {
+        final String squares = BoardUtils.INSTANCE.getPositionAtCoordinate(move.getCurrentCoordinate()) +
+                               BoardUtils.INSTANCE.getPositionAtCoordinate(move.getDestinationCoordinate());
+        return move instanceof PawnPromotion ?
+                squares + ((PawnPromotion) move).promotionPiece.getPieceType().toString().toLowerCase() : squares;
+    }
+
+    public static void main(final String[] args) {
+        boolean divide = false;
+        int hashMegabytes = 0;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int index = 0;
+        while (index < args.length && args[index].startsWith("-")) {
+            switch (args[index]) {
+                case "-divide":
+                    divide = true;
+                    index++;
+                    break;
+                case "-hash":
+                    hashMegabytes = Integer.parseInt(args[index + 1]);
+                    index += 2;
+                    break;
+                case "-threads":
+                    threads = Integer.parseInt(args[index + 1]);
+                    index += 2;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + args[index]);
+            }
+        }
+        if (index >= args.length) {
+            System.out.println("usage: Perft [-divide] [-hash <megabytes>] [-threads <n>] <depth> [fen]");
+            return;
+        }
+        final int depth = Integer.parseInt(args[index]);
+        final String fen = index + 1 < args.length ?
+                String.join(" ", Arrays.copyOfRange(args, index + 1, args.length)) : START_FEN;
+        final Board board = FenUtilities.createGameFromFEN(fen);
+        final Perft perft = new Perft(threads, hashMegabytes);
+        try {
+            final PerftResult result = divide ? perft.divide(board, depth) : perft.perft(board, depth);
+            for (final Map.Entry<String, Long> entry : result.getDivide().entrySet()) {
+                System.out.println(entry.getKey() + ": " + entry.getValue());
+            }
+            System.out.println(result);
+        } finally {
+            perft.shutdown();
+        }
+    }
+
+    public static final class PerftResult {
+
+        private final long nodes;
+        private final long elapsedNanos;
+        private final Map<String, Long> divide;
+
+        PerftResult(final long nodes,
+                    final long elapsedNanos,
+                    final Map<String, Long> divide) {
+            this.nodes = nodes;
+            this.elapsedNanos = elapsedNanos;
+            this.divide = Collections.unmodifiableMap(divide);
+        }
+
+        public long getNodes() {
+            return this.nodes;
+        }
+
+        public long getElapsedMillis() {
+            return this.elapsedNanos / 1_000_000;
+        }
+
+        public long getNodesPerSecond() {
+            return this.elapsedNanos == 0 ? 0 : (long) (this.nodes * 1e9 / this.elapsedNanos);
+        }
+
+        /* Root move in coordinate notation to its subtree count; empty unless produced by divide. */
+        public Map<String, Long> getDivide() {
+            return this.divide;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("nodes = %d, time taken = %d ms, rate = %d nodes/s",
+                    this.nodes, getElapsedMillis(), getNodesPerSecond());
+        }
+
+    }
+
+    private static final class PerftTask extends RecursiveTask<Long> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Board board;
+        private final int depth;
+        private final PerftCache cache;
+
+        PerftTask(final Board board,
+                  final int depth,
+                  final PerftCache cache) {
+            this.board = board;
+            this.depth = depth;
+            this.cache = cache;
+        }
+
+        @Override
+        protected Long compute() {
+            if (this.depth < SPLIT_DEPTH) {
+                return perft(this.board, this.depth, this.cache);
+            }
+            if (this.cache != null) {
+                final long cached = this.cache.probe(this.board.getZobristHash(), this.depth);
+                if (cached >= 0) {
+                    return cached;
+                }
+            }
+            final List<PerftTask> subtasks = new ArrayList<>();
+            for (final Move move : this.board.currentPlayer().getLegalMoves()) {
+                final MoveTransition transition = this.board.currentPlayer().makeMove(move);
+                if (transition.getMoveStatus().isDone()) {
+                    subtasks.add(new PerftTask(transition.getToBoard(), this.depth - 1, this.cache));
+                }
+            }
+            long nodes = 0;
+            for (final PerftTask subtask : invokeAll(subtasks)) {
+                nodes += subtask.join();
+            }
+            if (this.cache != null) {
+                this.cache.store(this.board.getZobristHash(), this.depth, nodes);
+            }
+            return nodes;
+        }
+
+    }
+
+    /*
+     * Shared, lock free table of (hash, depth) -> nodes. Each slot holds the data word and the
+     * key XOR data, so a slot half written by another thread simply fails the key check.
+     */
+    private static final class PerftCache {
+
+        private static final int DEPTH_SHIFT = 56;
+        private static final long NODES_MASK = (1L << DEPTH_SHIFT) - 1;
+
+        private final AtomicLongArray slots;
+        private final int mask;
+
+        PerftCache(final int megabytes) {
+            final int entries = Integer.highestOneBit((int) Math.min(1 << 30, Math.max(1L, megabytes * (1L << 20) / 16)));
+            this.slots = new AtomicLongArray(2 * entries);
+            this.mask = entries - 1;
+        }
+
+        long probe(final long hash,
+                   final int depth) {
+            final int index = 2 * ((int) hash & this.mask);
+            final long data = this.slots.get(index + 1);
+            if ((this.slots.get(index) ^ data) == hash && (data >>> DEPTH_SHIFT) == depth) {
+                return data & NODES_MASK;
+            }
+            return -1;
+        }
+
+        void store(final long hash,
+                   final int depth,
+                   final long nodes) {
+            final int index = 2 * ((int) hash & this.mask);
+            final long data = ((long) depth << DEPTH_SHIFT) | (nodes & NODES_MASK);
+            this.slots.set(index, hash ^ data);
+            this.slots.set(index + 1, data);
+        }
+
+    }
+
+}
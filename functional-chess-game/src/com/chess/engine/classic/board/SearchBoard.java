@@ -0,0 +1,678 @@
+package com.chess.engine.classic.board;
+
+import com.chess.engine.classic.Alliance;
+import com.chess.engine.classic.pieces.Pawn;
+import com.chess.engine.classic.pieces.Piece;
+import com.chess.engine.classic.pieces.Piece.PieceType;
+
+import java.util.Arrays;
+
+/*
+ * Mutable position used by the search. Moves are made and unmade in place and the
+ * state needed to take a move back is kept on an undo stack, so walking the tree does
+ * not build a Board per node. Immutable Boards are only needed at the root and for the GUI.
+ * Moves are ints in the MoveEncoding layout.
+ */
+public final class SearchBoard {
+
+    private static final int EMPTY = -1;
+    private static final int WHITE = 0;
+    private static final int BLACK = 1;
+
+    private static final int INITIAL_HISTORY_CAPACITY = 128;
+
+    /* Square 0 is a8, so white's seventh rank is the second row of bits and black's the seventh. */
+    private static final long WHITE_SEVENTH_RANK = 0xFFL << 8;
+    private static final long BLACK_SEVENTH_RANK = 0xFFL << 48;
+
+    /* Which moves the generator produces: captures and promotions, the rest, or both. */
+    private static final int NOISY = 1;
+    private static final int QUIET = 2;
+    private static final int ALL_MOVES = NOISY | QUIET;
+
+    private static final Alliance[] ALLIANCES = Alliance.values();
+    private static final PieceType[] PIECE_TYPES = PieceType.values();
+
+    private static final int PAWN = PieceType.PAWN.ordinal();
+    private static final int KNIGHT = PieceType.KNIGHT.ordinal();
+    private static final int BISHOP = PieceType.BISHOP.ordinal();
+    private static final int ROOK = PieceType.ROOK.ordinal();
+    private static final int KING = PieceType.KING.ordinal();
+
+    private final long[] pieceBoards;
+    private final long[] occupancy;
+    private final int[] squares;
+    private int sideToMove;
+    private int castlingRights;
+    private int enPassantSquare;
+    private int castledFlags;
+    private long zobristHash;
+
+    private int ply;
+    private int[] moveHistory;
+    private int[] castlingHistory;
+    private int[] enPassantHistory;
+    private int[] castledHistory;
+    private long[] zobristHistory;
+
+    private MoveList[] moveLists;
+    /* Scratch for staticExchange. */
+    private final int[] exchangeGains;
+
+    public SearchBoard(final Board board) {
+        this.pieceBoards = new long[2 * BitBoard.NUM_PIECE_TYPES];
+        this.occupancy = new long[2];
+        this.squares = new int[BoardUtils.NUM_TILES];
+        Arrays.fill(this.squares, EMPTY);
+        for (final Piece piece : board.getAllPieces()) {
+            addPiece(pieceCode(piece.getPieceAllegiance().ordinal(), piece.getPieceType().ordinal()),
+                     piece.getPiecePosition());
+        }
+        this.sideToMove = board.currentPlayer().getAlliance().ordinal();
+        this.castlingRights = board.getCastlingRights();
+        final Pawn enPassantPawn = board.getEnPassantPawn();
+        this.enPassantSquare = enPassantPawn != null ?
+                enPassantPawn.getPiecePosition() + 8 * enPassantPawn.getPieceAllegiance().getOppositeDirection() : EMPTY;
+        this.castledFlags = (board.whitePlayer().isCastled() ? 1 << WHITE : 0) |
+                            (board.blackPlayer().isCastled() ? 1 << BLACK : 0);
+        this.zobristHash = board.getZobristHash();
+        this.ply = 0;
+        this.moveHistory = new int[INITIAL_HISTORY_CAPACITY];
+        this.castlingHistory = new int[INITIAL_HISTORY_CAPACITY];
+        this.enPassantHistory = new int[INITIAL_HISTORY_CAPACITY];
+        this.castledHistory = new int[INITIAL_HISTORY_CAPACITY];
+        this.zobristHistory = new long[INITIAL_HISTORY_CAPACITY];
+        this.moveLists = new MoveList[INITIAL_HISTORY_CAPACITY];
+        this.exchangeGains = new int[BitBoard.EXCHANGE_GAINS_LENGTH];
+    }
+
+    public Alliance getAlliance() {
+        return ALLIANCES[this.sideToMove];
+    }
+
+    public int getPly() {
+        return this.ply;
+    }
+
+    public PieceType getPieceType(final int coordinate) {
+        final int code = this.squares[coordinate];
+        return code == EMPTY ? null : PIECE_TYPES[code % BitBoard.NUM_PIECE_TYPES];
+    }
+
+    public Alliance getPieceAlliance(final int coordinate) {
+        final int code = this.squares[coordinate];
+        return code == EMPTY ? null : ALLIANCES[code / BitBoard.NUM_PIECE_TYPES];
+    }
+
+    public long getPieces(final Alliance alliance,
+                          final PieceType pieceType) {
+        return this.pieceBoards[pieceCode(alliance.ordinal(), pieceType.ordinal())];
+    }
+
+    public boolean isCastled(final Alliance alliance) {
+        return (this.castledFlags & (1 << alliance.ordinal())) != 0;
+    }
+
+    public long getZobristHash() {
+        return this.zobristHash;
+    }
+
+    /* One reusable list per ply, so move generation and ordering allocate nothing once warmed up. */
+    public MoveList getMoveList() {
+        ensureCapacity(this.ply + 1);
+        if (this.moveLists[this.ply] == null) {
+            this.moveLists[this.ply] = new MoveList();
+        }
+        return this.moveLists[this.ply];
+    }
+
+    public int getMoveAt(final int pliesAgo) {
+        return pliesAgo < this.ply ? this.moveHistory[this.ply - 1 - pliesAgo] : MoveEncoding.NULL_MOVE;
+    }
+
+    public boolean isInCheck() {
+        return isInCheck(this.sideToMove);
+    }
+
+    public boolean isInCheck(final Alliance alliance) {
+        return isInCheck(alliance.ordinal());
+    }
+
+    public boolean isEndGame() {
+        return !hasLegalMove();
+    }
+
+    /* Tries the king's escapes before falling back to generating every legal move. */
+    public boolean hasLegalMove() {
+        final int us = this.sideToMove;
+        final int kingSquare = Long.numberOfTrailingZeros(this.pieceBoards[pieceCode(us, KING)]);
+        final long withoutKing = (this.occupancy[WHITE] | this.occupancy[BLACK]) & ~BitBoard.squareMask(kingSquare);
+        long targets = BitBoard.kingAttacks(kingSquare) & ~this.occupancy[us];
+        while (targets != 0) {
+            if (BitBoard.attackersTo(this.pieceBoards, Long.numberOfTrailingZeros(targets), us ^ 1, withoutKing) == 0) {
+                return true;
+            }
+            targets &= targets - 1;
+        }
+        final MoveList moves = getMoveList();
+        generateMoves(moves);
+        return !moves.isEmpty();
+    }
+
+    public boolean givesCheck(final int move) {
+        makeMove(move);
+        final boolean givesCheck = isInCheck();
+        unmakeMove();
+        return givesCheck;
+    }
+
+    /*
+     * Whether a move generated in some position, such as one kept in a hash table, is also
+     * legal here, found without generating anything. It must fit the board exactly, flags and
+     * piece types included, so that it equals the move generateMoves would produce; king
+     * safety is then settled by making it.
+     */
+    public boolean isLegalMove(final int move) {
+        final int from = MoveEncoding.getFrom(move);
+        final int to = MoveEncoding.getTo(move);
+        final int flags = MoveEncoding.getFlags(move);
+        final int us = this.sideToMove;
+        final int them = us ^ 1;
+        final int movedType = MoveEncoding.getMovedPieceType(move).ordinal();
+        final PieceType capturedType = MoveEncoding.getCapturedPieceType(move);
+        final long all = this.occupancy[WHITE] | this.occupancy[BLACK];
+        if (this.squares[from] != pieceCode(us, movedType)) {
+            return false;
+        }
+        if (MoveEncoding.isCastle(move)) {
+            final int kingSquare = us == WHITE ? 60 : 4;
+            return movedType == KING && from == kingSquare &&
+                   to == (flags == MoveEncoding.KING_CASTLE ? kingSquare + 2 : kingSquare - 2) &&
+                   canCastle(us, all, flags == MoveEncoding.KING_CASTLE);
+        }
+        if (flags == MoveEncoding.EN_PASSANT) {
+            if (to != this.enPassantSquare || capturedType != PieceType.PAWN ||
+                this.squares[enPassantVictimSquare(to, us)] != pieceCode(them, PAWN)) {
+                return false;
+            }
+        } else if (MoveEncoding.isCapture(move)) {
+            if (capturedType == null || this.squares[to] != pieceCode(them, capturedType.ordinal())) {
+                return false;
+            }
+        } else if (capturedType != null || this.squares[to] != EMPTY) {
+            return false;
+        }
+        if (movedType == PAWN) {
+            final Alliance alliance = ALLIANCES[us];
+            final int forward = 8 * alliance.getDirection();
+            if (MoveEncoding.isPromotion(move) != alliance.isPawnPromotionSquare(to)) {
+                return false;
+            }
+            if (MoveEncoding.isCapture(move)) {
+                if ((BitBoard.pawnAttacks(alliance, from) & BitBoard.squareMask(to)) == 0) {
+                    return false;
+                }
+            } else if (flags == MoveEncoding.DOUBLE_PAWN_PUSH) {
+                if (!isPawnStartSquare(us, from) || to != from + 2 * forward || this.squares[from + forward] != EMPTY) {
+                    return false;
+                }
+            } else if (to != from + forward) {
+                return false;
+            }
+        } else {
+            if (flags != MoveEncoding.QUIET && flags != MoveEncoding.CAPTURE) {
+                return false;
+            }
+            final long targets = movedType == KING ? BitBoard.kingAttacks(from) : attacks(movedType, from, all);
+            if ((targets & BitBoard.squareMask(to)) == 0) {
+                return false;
+            }
+        }
+        makeMove(move);
+        final boolean isLegal = !isInCheck(us);
+        unmakeMove();
+        return isLegal;
+    }
+
+    /*
+     * Legal moves for the side to move. Pinned pieces and the squares that resolve a check
+     * are worked out once up front, so every move generated here can be made without a
+     * king-safety test afterwards. Returns the number of moves, so zero means mate or stalemate.
+     */
+    public int generateMoves(final MoveList moves) {
+        moves.clear();
+        generateMoves(this.sideToMove, true, ALL_MOVES, moves);
+        return moves.size();
+    }
+
+    /* The legal captures, en passant included, and promotions, for a search that wants them first. */
+    public int generateCaptures(final MoveList moves) {
+        moves.clear();
+        generateMoves(this.sideToMove, true, NOISY, moves);
+        return moves.size();
+    }
+
+    /* Adds the legal moves generateCaptures leaves out to the end of the list, keeping what is there. */
+    public void generateQuietMoves(final MoveList moves) {
+        generateMoves(this.sideToMove, true, QUIET, moves);
+    }
+
+    /*
+     * Moves for either side without the pin filter, matching what Player.getLegalMoves returns
+     * for a Board: a side in check gets only its king moves and the moves onto the check line.
+     * The evaluator counts these for mobility and attacks.
+     */
+    public void generatePseudoLegalMoves(final Alliance alliance,
+                                         final MoveList moves) {
+        moves.clear();
+        generateMoves(alliance.ordinal(), false, ALL_MOVES, moves);
+    }
+
+    /* Makes a move produced by generateMoves in place. */
+    public void makeMove(final int move) {
+        final int from = MoveEncoding.getFrom(move);
+        final int to = MoveEncoding.getTo(move);
+        final int flags = MoveEncoding.getFlags(move);
+        final int us = this.sideToMove;
+        final int movedType = MoveEncoding.getMovedPieceType(move).ordinal();
+
+        ensureCapacity(this.ply + 1);
+        this.moveHistory[this.ply] = move;
+        this.castlingHistory[this.ply] = this.castlingRights;
+        this.enPassantHistory[this.ply] = this.enPassantSquare;
+        this.castledHistory[this.ply] = this.castledFlags;
+        this.zobristHistory[this.ply] = this.zobristHash;
+
+        if (flags == MoveEncoding.EN_PASSANT) {
+            removePiece(enPassantVictimSquare(to, us));
+        } else if ((flags & MoveEncoding.CAPTURE) != 0) {
+            removePiece(to);
+        }
+
+        removePiece(from);
+        addPiece(pieceCode(us, MoveEncoding.isPromotion(move) ? MoveEncoding.getPromotionType(move).ordinal() : movedType), to);
+
+        if (movedType == KING) {
+            if (flags == MoveEncoding.KING_CASTLE) {
+                addPiece(pieceCode(us, ROOK), from + 1);
+                removePiece(from + 3);
+            } else if (flags == MoveEncoding.QUEEN_CASTLE) {
+                addPiece(pieceCode(us, ROOK), from - 1);
+                removePiece(from - 4);
+            }
+            if (MoveEncoding.isCastle(move)) {
+                this.castledFlags |= 1 << us;
+            } else {
+                this.castledFlags &= ~(1 << us);
+            }
+        }
+
+        final int castlingRights = BoardUtils.updateCastlingRights(this.castlingRights, from, to);
+        final int enPassantSquare = flags == MoveEncoding.DOUBLE_PAWN_PUSH ? (from + to) / 2 : EMPTY;
+        this.zobristHash ^= Zobrist.castling(this.castlingRights) ^ Zobrist.castling(castlingRights) ^
+                            Zobrist.enPassant(this.enPassantSquare) ^ Zobrist.enPassant(enPassantSquare) ^
+                            Zobrist.blackToMove();
+        this.castlingRights = castlingRights;
+        this.enPassantSquare = enPassantSquare;
+        this.sideToMove = us ^ 1;
+        this.ply++;
+    }
+
+    /*
+     * Static exchange evaluation, as BitBoard.staticExchange, of a move by either side. The
+     * mover need not be the side to move, so the evaluator can ask for both.
+     */
+    public int staticExchange(final int move) {
+        final int from = MoveEncoding.getFrom(move);
+        final int us = this.squares[from] / BitBoard.NUM_PIECE_TYPES;
+        long occupancy = (this.occupancy[WHITE] | this.occupancy[BLACK]) & ~BitBoard.squareMask(from);
+        if (MoveEncoding.isEnPassant(move)) {
+            occupancy &= ~BitBoard.squareMask(enPassantVictimSquare(MoveEncoding.getTo(move), us));
+        }
+        return BitBoard.staticExchange(this.pieceBoards, move, us, occupancy, this.exchangeGains);
+    }
+
+    /*
+     * Passes the turn without moving, for null move pruning. Not legal chess: the caller must
+     * not pass while in check, and must take it back with unmakeNullMove before anything else.
+     */
+    public void makeNullMove() {
+        ensureCapacity(this.ply + 1);
+        this.moveHistory[this.ply] = MoveEncoding.NULL_MOVE;
+        this.castlingHistory[this.ply] = this.castlingRights;
+        this.enPassantHistory[this.ply] = this.enPassantSquare;
+        this.castledHistory[this.ply] = this.castledFlags;
+        this.zobristHistory[this.ply] = this.zobristHash;
+        this.zobristHash ^= Zobrist.enPassant(this.enPassantSquare) ^ Zobrist.enPassant(EMPTY) ^
+                            Zobrist.blackToMove();
+        this.enPassantSquare = EMPTY;
+        this.sideToMove ^= 1;
+        this.ply++;
+    }
+
+    public void unmakeNullMove() {
+        this.ply--;
+        this.enPassantSquare = this.enPassantHistory[this.ply];
+        this.zobristHash = this.zobristHistory[this.ply];
+        this.sideToMove ^= 1;
+    }
+
+    /* Whether the side to move has a piece other than pawns and its king. */
+    public boolean hasNonPawnMaterial() {
+        final int us = this.sideToMove;
+        return (this.occupancy[us] & ~this.pieceBoards[pieceCode(us, PAWN)] & ~this.pieceBoards[pieceCode(us, KING)]) != 0;
+    }
+
+    /* Whether the side to move has a pawn one step from promoting. */
+    public boolean hasPawnOnSeventhRank() {
+        final int us = this.sideToMove;
+        return (this.pieceBoards[pieceCode(us, PAWN)] & (us == WHITE ? WHITE_SEVENTH_RANK : BLACK_SEVENTH_RANK)) != 0;
+    }
+
+    public void unmakeMove() {
+        this.ply--;
+        final int move = this.moveHistory[this.ply];
+        final int from = MoveEncoding.getFrom(move);
+        final int to = MoveEncoding.getTo(move);
+        final int flags = MoveEncoding.getFlags(move);
+        final int us = this.sideToMove ^ 1;
+
+        removePiece(to);
+        addPiece(pieceCode(us, MoveEncoding.getMovedPieceType(move).ordinal()), from);
+
+        if (flags == MoveEncoding.KING_CASTLE) {
+            addPiece(pieceCode(us, ROOK), from + 3);
+            removePiece(from + 1);
+        } else if (flags == MoveEncoding.QUEEN_CASTLE) {
+            addPiece(pieceCode(us, ROOK), from - 4);
+            removePiece(from - 1);
+        }
+
+        final PieceType capturedType = MoveEncoding.getCapturedPieceType(move);
+        if (capturedType != null) {
+            addPiece(pieceCode(us ^ 1, capturedType.ordinal()),
+                     flags == MoveEncoding.EN_PASSANT ? enPassantVictimSquare(to, us) : to);
+        }
+
+        this.castlingRights = this.castlingHistory[this.ply];
+        this.enPassantSquare = this.enPassantHistory[this.ply];
+        this.castledFlags = this.castledHistory[this.ply];
+        this.zobristHash = this.zobristHistory[this.ply];
+        this.sideToMove = us;
+    }
+
+    private void generateMoves(final int us,
+                               final boolean legal,
+                               final int kinds,
+                               final MoveList moves) {
+        final int them = us ^ 1;
+        final long own = this.occupancy[us];
+        final long enemy = this.occupancy[them];
+        final long all = own | enemy;
+        final Alliance alliance = ALLIANCES[us];
+        final boolean isNoisy = (kinds & NOISY) != 0;
+        final boolean isQuiet = (kinds & QUIET) != 0;
+        /* the squares a piece may move to for the kinds asked for */
+        final long kindTargets = (isNoisy ? enemy : 0L) | (isQuiet ? ~all : 0L);
+
+        final long kingBoard = this.pieceBoards[pieceCode(us, KING)];
+        final int kingSquare = Long.numberOfTrailingZeros(kingBoard);
+        final long checkers = kingBoard == 0 ? 0L : BitBoard.attackersTo(this.pieceBoards, kingSquare, them, all);
+        if (Long.bitCount(checkers) > 1) {
+            if (legal) {
+                generateKingMoves(us, kingSquare, all, kindTargets, moves);
+            } else {
+                addMoves(moves, kingSquare, KING, BitBoard.kingAttacks(kingSquare) & kindTargets, enemy);
+            }
+            return;
+        }
+        final long checkMask = checkers == 0 ? ~0L :
+                checkers | BitBoard.between(kingSquare, Long.numberOfTrailingZeros(checkers));
+        final long pinned = legal ? BitBoard.pinnedPieces(this.pieceBoards, us, kingSquare, all) : 0L;
+
+        long pawns = this.pieceBoards[pieceCode(us, PAWN)];
+        final int forward = 8 * alliance.getDirection();
+        while (pawns != 0) {
+            final int from = Long.numberOfTrailingZeros(pawns);
+            final long allowed = (pinned & BitBoard.squareMask(from)) == 0 ? checkMask : checkMask & BitBoard.line(kingSquare, from);
+            final int to = from + forward;
+            if ((all & BitBoard.squareMask(to)) == 0) {
+                if ((allowed & BitBoard.squareMask(to)) != 0) {
+                    if (alliance.isPawnPromotionSquare(to)) {
+                        if (isNoisy) {
+                            addPromotions(moves, from, to, MoveEncoding.PROMOTION, EMPTY);
+                        }
+                    } else if (isQuiet) {
+                        moves.add(MoveEncoding.create(from, to, MoveEncoding.QUIET, PAWN, EMPTY));
+                    }
+                }
+                if (isQuiet && isPawnStartSquare(us, from) && (all & BitBoard.squareMask(to + forward)) == 0 &&
+                    (allowed & BitBoard.squareMask(to + forward)) != 0) {
+                    moves.add(MoveEncoding.create(from, to + forward, MoveEncoding.DOUBLE_PAWN_PUSH, PAWN, EMPTY));
+                }
+            }
+            final long attacks = isNoisy ? BitBoard.pawnAttacks(alliance, from) : 0L;
+            long captures = attacks & enemy & allowed;
+            while (captures != 0) {
+                final int target = Long.numberOfTrailingZeros(captures);
+                final int capturedType = pieceType(target);
+                if (alliance.isPawnPromotionSquare(target)) {
+                    addPromotions(moves, from, target, MoveEncoding.PROMOTION | MoveEncoding.CAPTURE, capturedType);
+                } else {
+                    moves.add(MoveEncoding.create(from, target, MoveEncoding.CAPTURE, PAWN, capturedType));
+                }
+                captures &= captures - 1;
+            }
+            if (this.enPassantSquare != EMPTY && (attacks & BitBoard.squareMask(this.enPassantSquare)) != 0) {
+                final int victim = enPassantVictimSquare(this.enPassantSquare, us);
+                if (this.squares[victim] == pieceCode(them, PAWN) &&
+                    (checkMask & (BitBoard.squareMask(victim) | BitBoard.squareMask(this.enPassantSquare))) != 0 &&
+                    (!legal || isLegalEnPassant(from, this.enPassantSquare, victim, kingSquare, them, all))) {
+                    moves.add(MoveEncoding.create(from, this.enPassantSquare, MoveEncoding.EN_PASSANT, PAWN, PAWN));
+                }
+            }
+            pawns &= pawns - 1;
+        }
+
+        for (int type = KNIGHT; type < KING; type++) {
+            long pieces = this.pieceBoards[pieceCode(us, type)];
+            while (pieces != 0) {
+                final int from = Long.numberOfTrailingZeros(pieces);
+                long targets = attacks(type, from, all) & kindTargets & checkMask;
+                if ((pinned & BitBoard.squareMask(from)) != 0) {
+                    targets &= BitBoard.line(kingSquare, from);
+                }
+                addMoves(moves, from, type, targets, enemy);
+                pieces &= pieces - 1;
+            }
+        }
+
+        if (legal) {
+            generateKingMoves(us, kingSquare, all, kindTargets, moves);
+        } else if (kingBoard != 0) {
+            addMoves(moves, kingSquare, KING, BitBoard.kingAttacks(kingSquare) & kindTargets, enemy);
+        }
+
+        if (isQuiet) {
+            generateCastles(us, all, moves);
+        }
+    }
+
+    private void generateKingMoves(final int us,
+                                   final int kingSquare,
+                                   final long all,
+                                   final long kindTargets,
+                                   final MoveList moves) {
+        final int them = us ^ 1;
+        final long withoutKing = all & ~BitBoard.squareMask(kingSquare);
+        long targets = BitBoard.kingAttacks(kingSquare) & kindTargets;
+        while (targets != 0) {
+            final int to = Long.numberOfTrailingZeros(targets);
+            if (BitBoard.attackersTo(this.pieceBoards, to, them, withoutKing) == 0) {
+                if ((this.occupancy[them] & BitBoard.squareMask(to)) != 0) {
+                    moves.add(MoveEncoding.create(kingSquare, to, MoveEncoding.CAPTURE, KING, pieceType(to)));
+                } else {
+                    moves.add(MoveEncoding.create(kingSquare, to, MoveEncoding.QUIET, KING, EMPTY));
+                }
+            }
+            targets &= targets - 1;
+        }
+    }
+
+    /* En passant removes two pieces from one rank, so it is checked against the resulting occupancy. */
+    private boolean isLegalEnPassant(final int from,
+                                     final int to,
+                                     final int victim,
+                                     final int kingSquare,
+                                     final int them,
+                                     final long all) {
+        final long after = (all & ~BitBoard.squareMask(from) & ~BitBoard.squareMask(victim)) | BitBoard.squareMask(to);
+        return BitBoard.attackersTo(this.pieceBoards, kingSquare, them, after) == 0;
+    }
+
+    private void addMoves(final MoveList moves,
+                          final int from,
+                          final int type,
+                          final long targets,
+                          final long enemy) {
+        long remaining = targets;
+        while (remaining != 0) {
+            final int to = Long.numberOfTrailingZeros(remaining);
+            if ((enemy & BitBoard.squareMask(to)) != 0) {
+                moves.add(MoveEncoding.create(from, to, MoveEncoding.CAPTURE, type, pieceType(to)));
+            } else {
+                moves.add(MoveEncoding.create(from, to, MoveEncoding.QUIET, type, EMPTY));
+            }
+            remaining &= remaining - 1;
+        }
+    }
+
+    private void generateCastles(final int us,
+                                 final long all,
+                                 final MoveList moves) {
+        final int kingSquare = us == WHITE ? 60 : 4;
+        if (canCastle(us, all, true)) {
+            moves.add(MoveEncoding.create(kingSquare, kingSquare + 2, MoveEncoding.KING_CASTLE, KING, EMPTY));
+        }
+        if (canCastle(us, all, false)) {
+            moves.add(MoveEncoding.create(kingSquare, kingSquare - 2, MoveEncoding.QUEEN_CASTLE, KING, EMPTY));
+        }
+    }
+
+    /*
+     * Whether the side may castle on the given wing now. Mirrors
+     * WhitePlayer/BlackPlayer.calculateKingCastles, including the rule that an enemy pawn in
+     * front of the king blocks castling, so both move generators agree.
+     */
+    private boolean canCastle(final int us,
+                              final long all,
+                              final boolean isKingSide) {
+        final int right = isKingSide ?
+                (us == WHITE ? BoardUtils.WHITE_KING_SIDE_CASTLE : BoardUtils.BLACK_KING_SIDE_CASTLE) :
+                (us == WHITE ? BoardUtils.WHITE_QUEEN_SIDE_CASTLE : BoardUtils.BLACK_QUEEN_SIDE_CASTLE);
+        if ((this.castlingRights & right) == 0) {
+            return false;
+        }
+        final int kingSquare = us == WHITE ? 60 : 4;
+        final int them = us ^ 1;
+        if (this.squares[kingSquare + (us == WHITE ? -8 : 8)] == pieceCode(them, PAWN) || isInCheck(us)) {
+            return false;
+        }
+        if (isKingSide) {
+            return (all & (BitBoard.squareMask(kingSquare + 1) | BitBoard.squareMask(kingSquare + 2))) == 0 &&
+                   !isAttacked(kingSquare + 1, them) && !isAttacked(kingSquare + 2, them);
+        }
+        return (all & (BitBoard.squareMask(kingSquare - 1) | BitBoard.squareMask(kingSquare - 2) |
+                       BitBoard.squareMask(kingSquare - 3))) == 0 &&
+               !isAttacked(kingSquare - 1, them) && !isAttacked(kingSquare - 2, them);
+    }
+
+    private static void addPromotions(final MoveList moves,
+                                      final int from,
+                                      final int to,
+                                      final int flags,
+                                      final int capturedType) {
+        moves.add(MoveEncoding.create(from, to, flags | 3, PAWN, capturedType));
+        moves.add(MoveEncoding.create(from, to, flags | 2, PAWN, capturedType));
+        moves.add(MoveEncoding.create(from, to, flags | 1, PAWN, capturedType));
+        moves.add(MoveEncoding.create(from, to, flags, PAWN, capturedType));
+    }
+
+    private boolean isInCheck(final int side) {
+        final long king = this.pieceBoards[pieceCode(side, KING)];
+        return king != 0 && isAttacked(Long.numberOfTrailingZeros(king), side ^ 1);
+    }
+
+    private boolean isAttacked(final int coordinate,
+                               final int attacker) {
+        return BitBoard.attackersTo(this.pieceBoards, coordinate, attacker, this.occupancy[WHITE] | this.occupancy[BLACK]) != 0;
+    }
+
+    private static long attacks(final int type,
+                                final int coordinate,
+                                final long all) {
+        if (type == KNIGHT) {
+            return BitBoard.knightAttacks(coordinate);
+        } else if (type == BISHOP) {
+            return BitBoard.bishopAttacks(coordinate, all);
+        } else if (type == ROOK) {
+            return BitBoard.rookAttacks(coordinate, all);
+        }
+        return BitBoard.queenAttacks(coordinate, all);
+    }
+
+    private void addPiece(final int code,
+                          final int coordinate) {
+        final long mask = BitBoard.squareMask(coordinate);
+        this.pieceBoards[code] |= mask;
+        this.occupancy[code / BitBoard.NUM_PIECE_TYPES] |= mask;
+        this.squares[coordinate] = code;
+        this.zobristHash ^= pieceKey(code, coordinate);
+    }
+
+    private void removePiece(final int coordinate) {
+        final int code = this.squares[coordinate];
+        final long mask = BitBoard.squareMask(coordinate);
+        this.pieceBoards[code] &= ~mask;
+        this.occupancy[code / BitBoard.NUM_PIECE_TYPES] &= ~mask;
+        this.squares[coordinate] = EMPTY;
+        this.zobristHash ^= pieceKey(code, coordinate);
+    }
+
+    private void ensureCapacity(final int capacity) {
+        if (capacity > this.moveHistory.length) {
+            final int newCapacity = Math.max(capacity, 2 * this.moveHistory.length);
+            this.moveHistory = Arrays.copyOf(this.moveHistory, newCapacity);
+            this.castlingHistory = Arrays.copyOf(this.castlingHistory, newCapacity);
+            this.enPassantHistory = Arrays.copyOf(this.enPassantHistory, newCapacity);
+            this.castledHistory = Arrays.copyOf(this.castledHistory, newCapacity);
+            this.zobristHistory = Arrays.copyOf(this.zobristHistory, newCapacity);
+            this.moveLists = Arrays.copyOf(this.moveLists, newCapacity);
+        }
+    }
+
+    private static int enPassantVictimSquare(final int enPassantSquare,
+                                             final int us) {
+        return enPassantSquare + 8 * ALLIANCES[us].getOppositeDirection();
+    }
+
+    private static boolean isPawnStartSquare(final int side,
+                                             final int coordinate) {
+        return BoardUtils.getRow(coordinate) == (side == WHITE ? 6 : 1);
+    }
+
+    private int pieceType(final int coordinate) {
+        return this.squares[coordinate] % BitBoard.NUM_PIECE_TYPES;
+    }
+
+    private static int pieceCode(final int side,
+                                 final int type) {
+        return side * BitBoard.NUM_PIECE_TYPES + type;
+    }
+
+    private static long pieceKey(final int code,
+                                 final int coordinate) {
+        return Zobrist.piece(ALLIANCES[code / BitBoard.NUM_PIECE_TYPES], PIECE_TYPES[code % BitBoard.NUM_PIECE_TYPES], coordinate);
+    }
+
+}
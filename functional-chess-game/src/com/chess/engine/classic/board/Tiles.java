@@ -0,0 +1,70 @@
+package com.chess.engine.classic.board;
+
+import com.chess.engine.classic.pieces.Piece;
+
+/*
+ * Piece placement as a persistent 64 slot array: a root of eight rows, each an array of eight
+ * tiles. A position derived from another one copies the root and only the rows its move wrote
+ * to, and shares every other row with its parent. Boards kept around by the game history, the
+ * move log or a PGN import therefore cost a handful of small arrays each, not a full copy.
+ */
+final class Tiles {
+
+    static final Tiles EMPTY = new Tiles(new Piece[BoardUtils.NUM_TILES_PER_ROW][BoardUtils.NUM_TILES_PER_ROW]);
+
+    private final Piece[][] rows;
+
+    private Tiles(final Piece[][] rows) {
+        this.rows = rows;
+    }
+
+    Piece get(final int coordinate) {
+        return this.rows[BoardUtils.getRow(coordinate)][BoardUtils.getColumn(coordinate)];
+    }
+
+    Editor edit() {
+        return new Editor(this.rows);
+    }
+
+    /*
+     * Copy on write view a Board.Builder fills in. The root and each row are cloned the first
+     * time they are written, and freeze hands the result over without copying again; writes
+     * after a freeze start cloning afresh, so a published Tiles never changes.
+     */
+    static final class Editor {
+
+        private Piece[][] rows;
+        private boolean ownsRoot;
+        private int ownedRows;
+
+        private Editor(final Piece[][] rows) {
+            this.rows = rows;
+        }
+
+        Piece get(final int coordinate) {
+            return this.rows[BoardUtils.getRow(coordinate)][BoardUtils.getColumn(coordinate)];
+        }
+
+        void set(final int coordinate,
+                 final Piece piece) {
+            final int row = BoardUtils.getRow(coordinate);
+            if (!this.ownsRoot) {
+                this.rows = this.rows.clone();
+                this.ownsRoot = true;
+            }
+            if ((this.ownedRows & (1 << row)) == 0) {
+                this.rows[row] = this.rows[row].clone();
+                this.ownedRows |= 1 << row;
+            }
+            this.rows[row][BoardUtils.getColumn(coordinate)] = piece;
+        }
+
+        Tiles freeze() {
+            this.ownsRoot = false;
+            this.ownedRows = 0;
+            return new Tiles(this.rows);
+        }
+
+    }
+
+}
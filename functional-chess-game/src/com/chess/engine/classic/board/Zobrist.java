@@ -0,0 +1,86 @@
+package com.chess.engine.classic.board;
+
+import com.chess.engine.classic.Alliance;
+import com.chess.engine.classic.pieces.Pawn;
+import com.chess.engine.classic.pieces.Piece;
+import com.chess.engine.classic.pieces.Piece.PieceType;
+
+import java.util.Random;
+
+/*
+ * Zobrist keys for the full position: piece placement, side to move, castling rights and the
+ * file of the pawn that just jumped. The tables come from a fixed seed so a position hashes to
+ * the same key in every run and every process.
+ */
+public final class Zobrist {
+
+    private static final long SEED = 0x2545F4914F6CDD1DL;
+
+    private static final long[][] PIECE_KEYS = new long[2 * BitBoard.NUM_PIECE_TYPES][BoardUtils.NUM_TILES];
+    private static final long[] CASTLING_KEYS = new long[16];
+    private static final long[] EN_PASSANT_KEYS = new long[BoardUtils.NUM_TILES_PER_ROW];
+    private static final long BLACK_TO_MOVE_KEY;
+
+    static {
+        final Random random = new Random(SEED);
+        for (final long[] pieceKeys : PIECE_KEYS) {
+            for (int coordinate = 0; coordinate < pieceKeys.length; coordinate++) {
+                pieceKeys[coordinate] = random.nextLong();
+            }
+        }
+        for (int rights = 1; rights < CASTLING_KEYS.length; rights++) {
+            CASTLING_KEYS[rights] = random.nextLong();
+        }
+        for (int file = 0; file < EN_PASSANT_KEYS.length; file++) {
+            EN_PASSANT_KEYS[file] = random.nextLong();
+        }
+        BLACK_TO_MOVE_KEY = random.nextLong();
+    }
+
+    private Zobrist() {
+        throw new RuntimeException("Not instantiatable!");
+    }
+
+    public static long piece(final Alliance alliance,
+                             final PieceType pieceType,
+                             final int coordinate) {
+        return PIECE_KEYS[alliance.ordinal() * BitBoard.NUM_PIECE_TYPES + pieceType.ordinal()][coordinate];
+    }
+
+    public static long piece(final Piece piece,
+                             final int coordinate) {
+        return piece(piece.getPieceAllegiance(), piece.getPieceType(), coordinate);
+    }
+
+    public static long sideToMove(final Alliance alliance) {
+        return alliance.isBlack() ? BLACK_TO_MOVE_KEY : 0L;
+    }
+
+    public static long blackToMove() {
+        return BLACK_TO_MOVE_KEY;
+    }
+
+    public static long castling(final int castlingRights) {
+        return CASTLING_KEYS[castlingRights];
+    }
+
+    public static long enPassant(final int coordinate) {
+        return coordinate < 0 ? 0L : EN_PASSANT_KEYS[BoardUtils.getColumn(coordinate)];
+    }
+
+    static long enPassant(final Pawn enPassantPawn) {
+        return enPassantPawn == null ? 0L : enPassant(enPassantPawn.getPiecePosition());
+    }
+
+    static long calculate(final Board board) {
+        long hash = 0L;
+        for (final Piece piece : board.getAllPieces()) {
+            hash ^= piece(piece, piece.getPiecePosition());
+        }
+        return hash ^
+               sideToMove(board.currentPlayer().getAlliance()) ^
+               castling(board.getCastlingRights()) ^
+               enPassant(board.getEnPassantPawn());
+    }
+
+}
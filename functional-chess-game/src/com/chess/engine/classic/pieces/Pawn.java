@@ -1,6 +1,7 @@
 package com.chess.engine.classic.pieces;
 
 import com.chess.engine.classic.Alliance;
+import com.chess.engine.classic.board.BitBoard;
 import com.chess.engine.classic.board.Board;
 import com.chess.engine.classic.board.BoardUtils;
 import com.chess.engine.classic.board.Move;
@@ -14,16 +15,9 @@ import java.util.List;
 public final class Pawn
         extends Piece {
 
-    private final static int[] CANDIDATE_MOVE_COORDINATES = {8, 16, 7, 9};
-
-    public Pawn(final Alliance allegiance,
-                final int piecePosition) {
-        super(PieceType.PAWN, allegiance, piecePosition, true);
-    }
-
-    public Pawn(final Alliance alliance,
-                final int piecePosition,
-                final boolean isFirstMove) {
+    Pawn(final Alliance alliance,
+         final int piecePosition,
+         final boolean isFirstMove) {
         super(PieceType.PAWN, alliance, piecePosition, isFirstMove);
     }
 
@@ -33,110 +27,63 @@ public final class Pawn
     }
 
     @Override
-    public Collection<Move> calculateLegalMoves(final Board board) {
+    public Collection<Move> calculateLegalMoves(final Board board,
+                                                final long targets) {
         final List<Move> legalMoves = new ArrayList<>();
-        for (final int currentCandidateOffset : CANDIDATE_MOVE_COORDINATES) {
-            int candidateDestinationCoordinate =
-                    this.piecePosition + (this.pieceAlliance.getDirection() * currentCandidateOffset);
-            if (!BoardUtils.isValidTileCoordinate(candidateDestinationCoordinate)) {
-                continue;
-            }
-            if (currentCandidateOffset == 8 && board.getPiece(candidateDestinationCoordinate) == null) {
-                if (this.pieceAlliance.isPawnPromotionSquare(candidateDestinationCoordinate)) {
-                    legalMoves.add(new PawnPromotion(
-                            new PawnMove(board, this, candidateDestinationCoordinate), PieceUtils.INSTANCE.getMovedQueen(this.pieceAlliance, candidateDestinationCoordinate)));
-                    legalMoves.add(new PawnPromotion(
-                            new PawnMove(board, this, candidateDestinationCoordinate), PieceUtils.INSTANCE.getMovedRook(this.pieceAlliance, candidateDestinationCoordinate)));
-                    legalMoves.add(new PawnPromotion(
-                            new PawnMove(board, this, candidateDestinationCoordinate), PieceUtils.INSTANCE.getMovedBishop(this.pieceAlliance, candidateDestinationCoordinate)));
-                    legalMoves.add(new PawnPromotion(
-                            new PawnMove(board, this, candidateDestinationCoordinate), PieceUtils.INSTANCE.getMovedKnight(this.pieceAlliance, candidateDestinationCoordinate)));
+        final BitBoard bitBoard = board.getBitBoard();
+        final int forwardCoordinate = this.piecePosition + (this.pieceAlliance.getDirection() * 8);
+        if (BoardUtils.isValidTileCoordinate(forwardCoordinate) && !bitBoard.isOccupied(forwardCoordinate)) {
+            final boolean forwardTargeted = (targets & BitBoard.squareMask(forwardCoordinate)) != 0;
+            if (this.pieceAlliance.isPawnPromotionSquare(forwardCoordinate)) {
+                if (forwardTargeted) {
+                    addPromotions(legalMoves, new PawnMove(this, forwardCoordinate));
                 }
-                else {
-                    legalMoves.add(new PawnMove(board, this, candidateDestinationCoordinate));
+            } else {
+                if (forwardTargeted) {
+                    legalMoves.add(new PawnMove(this, forwardCoordinate));
                 }
-            }
-            else if (currentCandidateOffset == 16 && this.isFirstMove() &&
-                    ((BoardUtils.INSTANCE.SECOND_ROW.get(this.piecePosition) && this.pieceAlliance.isBlack()) ||
-                     (BoardUtils.INSTANCE.SEVENTH_ROW.get(this.piecePosition) && this.pieceAlliance.isWhite()))) {
-                final int behindCandidateDestinationCoordinate =
-                        this.piecePosition + (this.pieceAlliance.getDirection() * 8);
-                if (board.getPiece(candidateDestinationCoordinate) == null &&
-                    board.getPiece(behindCandidateDestinationCoordinate) == null) {
-                    legalMoves.add(new PawnJump(board, this, candidateDestinationCoordinate));
+                final int jumpCoordinate = forwardCoordinate + (this.pieceAlliance.getDirection() * 8);
+                if (this.isFirstMove() &&
+                    ((BoardUtils.getRow(this.piecePosition) == 1 && this.pieceAlliance.isBlack()) ||
+                     (BoardUtils.getRow(this.piecePosition) == 6 && this.pieceAlliance.isWhite())) &&
+                    (targets & BitBoard.squareMask(jumpCoordinate)) != 0 &&
+                    !bitBoard.isOccupied(jumpCoordinate)) {
+                    legalMoves.add(new PawnJump(this, jumpCoordinate));
                 }
             }
-            else if (currentCandidateOffset == 7 &&
-                    !((BoardUtils.INSTANCE.EIGHTH_COLUMN.get(this.piecePosition) && this.pieceAlliance.isWhite()) ||
-                      (BoardUtils.INSTANCE.FIRST_COLUMN.get(this.piecePosition) && this.pieceAlliance.isBlack()))) {
-                if(board.getPiece(candidateDestinationCoordinate) != null) {
-                    final Piece pieceOnCandidate = board.getPiece(candidateDestinationCoordinate);
-                    if (this.pieceAlliance != pieceOnCandidate.getPieceAllegiance()) {
-                        if (this.pieceAlliance.isPawnPromotionSquare(candidateDestinationCoordinate)) {
-                            legalMoves.add(new PawnPromotion(
-                                    new PawnAttackMove(board, this, candidateDestinationCoordinate, pieceOnCandidate), PieceUtils.INSTANCE.getMovedQueen(this.pieceAlliance, candidateDestinationCoordinate)));
-                            legalMoves.add(new PawnPromotion(
-                                    new PawnAttackMove(board, this, candidateDestinationCoordinate, pieceOnCandidate), PieceUtils.INSTANCE.getMovedRook(this.pieceAlliance, candidateDestinationCoordinate)));
-                            legalMoves.add(new PawnPromotion(
-                                    new PawnAttackMove(board, this, candidateDestinationCoordinate, pieceOnCandidate), PieceUtils.INSTANCE.getMovedBishop(this.pieceAlliance, candidateDestinationCoordinate)));
-                            legalMoves.add(new PawnPromotion(
-                                    new PawnAttackMove(board, this, candidateDestinationCoordinate, pieceOnCandidate), PieceUtils.INSTANCE.getMovedKnight(this.pieceAlliance, candidateDestinationCoordinate)));
-                        }
-                        else {
-                            legalMoves.add(
-                                    new PawnAttackMove(board, this, candidateDestinationCoordinate, pieceOnCandidate));
-                        }
-                    }
-                } else if (board.getEnPassantPawn() != null && board.getEnPassantPawn().getPiecePosition() ==
-                           (this.piecePosition + (this.pieceAlliance.getOppositeDirection()))) {
-                    final Piece pieceOnCandidate = board.getEnPassantPawn();
-                    if (this.pieceAlliance != pieceOnCandidate.getPieceAllegiance()) {
-                        legalMoves.add(
-                                new PawnEnPassantAttack(board, this, candidateDestinationCoordinate, pieceOnCandidate));
-
-                    }
-                }
+        }
+        final long pawnAttacks = BitBoard.pawnAttacks(this.pieceAlliance, this.piecePosition);
+        long attackedCoordinates = pawnAttacks & ~bitBoard.getOccupancy(this.pieceAlliance) & bitBoard.getOccupancy() & targets;
+        while (attackedCoordinates != 0) {
+            final int candidateDestinationCoordinate = Long.numberOfTrailingZeros(attackedCoordinates);
+            final Piece pieceOnCandidate = board.getPiece(candidateDestinationCoordinate);
+            if (this.pieceAlliance.isPawnPromotionSquare(candidateDestinationCoordinate)) {
+                addPromotions(legalMoves, new PawnAttackMove(this, candidateDestinationCoordinate, pieceOnCandidate));
+            } else {
+                legalMoves.add(new PawnAttackMove(this, candidateDestinationCoordinate, pieceOnCandidate));
             }
-            else if (currentCandidateOffset == 9 &&
-                    !((BoardUtils.INSTANCE.FIRST_COLUMN.get(this.piecePosition) && this.pieceAlliance.isWhite()) ||
-                      (BoardUtils.INSTANCE.EIGHTH_COLUMN.get(this.piecePosition) && this.pieceAlliance.isBlack()))) {
-                if(board.getPiece(candidateDestinationCoordinate) != null) {
-                    if (this.pieceAlliance !=
-                            board.getPiece(candidateDestinationCoordinate).getPieceAllegiance()) {
-                        if (this.pieceAlliance.isPawnPromotionSquare(candidateDestinationCoordinate)) {
-                            legalMoves.add(new PawnPromotion(
-                                    new PawnAttackMove(board, this, candidateDestinationCoordinate,
-                                            board.getPiece(candidateDestinationCoordinate)), PieceUtils.INSTANCE.getMovedQueen(this.pieceAlliance, candidateDestinationCoordinate)));
-                            legalMoves.add(new PawnPromotion(
-                                    new PawnAttackMove(board, this, candidateDestinationCoordinate,
-                                            board.getPiece(candidateDestinationCoordinate)), PieceUtils.INSTANCE.getMovedRook(this.pieceAlliance, candidateDestinationCoordinate)));
-                            legalMoves.add(new PawnPromotion(
-                                    new PawnAttackMove(board, this, candidateDestinationCoordinate,
-                                            board.getPiece(candidateDestinationCoordinate)), PieceUtils.INSTANCE.getMovedBishop(this.pieceAlliance, candidateDestinationCoordinate)));
-                            legalMoves.add(new PawnPromotion(
-                                    new PawnAttackMove(board, this, candidateDestinationCoordinate,
-                                            board.getPiece(candidateDestinationCoordinate)), PieceUtils.INSTANCE.getMovedKnight(this.pieceAlliance, candidateDestinationCoordinate)));
-                        }
-                        else {
-                            legalMoves.add(
-                                    new PawnAttackMove(board, this, candidateDestinationCoordinate,
-                                            board.getPiece(candidateDestinationCoordinate)));
-                        }
-                    }
-                } else if (board.getEnPassantPawn() != null && board.getEnPassantPawn().getPiecePosition() ==
-                        (this.piecePosition - (this.pieceAlliance.getOppositeDirection()))) {
-                    final Piece pieceOnCandidate = board.getEnPassantPawn();
-                    if (this.pieceAlliance != pieceOnCandidate.getPieceAllegiance()) {
-                        legalMoves.add(
-                                new PawnEnPassantAttack(board, this, candidateDestinationCoordinate, pieceOnCandidate));
-
-                    }
-                }
+            attackedCoordinates &= attackedCoordinates - 1;
+        }
+        final Pawn enPassantPawn = board.getEnPassantPawn();
+        if (enPassantPawn != null && enPassantPawn.getPieceAllegiance() != this.pieceAlliance) {
+            final int enPassantCoordinate = enPassantPawn.getPiecePosition() + (this.pieceAlliance.getDirection() * 8);
+            if ((pawnAttacks & BitBoard.squareMask(enPassantCoordinate)) != 0 && !bitBoard.isOccupied(enPassantCoordinate) &&
+                (targets & (BitBoard.squareMask(enPassantCoordinate) | BitBoard.squareMask(enPassantPawn.getPiecePosition()))) != 0) {
+                legalMoves.add(new PawnEnPassantAttack(this, enPassantCoordinate, enPassantPawn));
             }
         }
         return Collections.unmodifiableList(legalMoves);
     }
 
+    private void addPromotions(final List<Move> legalMoves,
+                               final Move pawnMove) {
+        final int destinationCoordinate = pawnMove.getDestinationCoordinate();
+        legalMoves.add(new PawnPromotion(pawnMove, PieceUtils.INSTANCE.getMovedQueen(this.pieceAlliance, destinationCoordinate)));
+        legalMoves.add(new PawnPromotion(pawnMove, PieceUtils.INSTANCE.getMovedRook(this.pieceAlliance, destinationCoordinate)));
+        legalMoves.add(new PawnPromotion(pawnMove, PieceUtils.INSTANCE.getMovedBishop(this.pieceAlliance, destinationCoordinate)));
+        legalMoves.add(new PawnPromotion(pawnMove, PieceUtils.INSTANCE.getMovedKnight(this.pieceAlliance, destinationCoordinate)));
+    }
+
     @Override
     public String toString() {
         return this.pieceType.toString();
@@ -1,10 +1,16 @@
 package com.chess.engine.classic.pieces;
 
 import com.chess.engine.classic.Alliance;
+import com.chess.engine.classic.board.BitBoard;
 import com.chess.engine.classic.board.Board;
 import com.chess.engine.classic.board.Move;
+import com.chess.engine.classic.board.Move.MajorAttackMove;
+import com.chess.engine.classic.board.Move.MajorMove;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 
 public abstract class Piece {
 
@@ -49,30 +55,60 @@ public abstract class Piece {
 
     public abstract Piece movePiece(Move move);
 
-    public abstract Collection<Move> calculateLegalMoves(final Board board);
-
+    public Collection<Move> calculateLegalMoves(final Board board) {
+        return calculateLegalMoves(board, ~0L);
+    }
 
-    @Override
-    public boolean equals(final Object other) {
-        if (this == other) {
-            return true;
+    /*
+     * Only the moves landing on one of the target tiles, as a bitboard. An en passant capture
+     * also qualifies through the tile of the pawn it removes.
+     */
+    public abstract Collection<Move> calculateLegalMoves(final Board board,
+                                                         final long targets);
+
+    /*
+     * Another piece of the same type that could also land on a destination makes the move
+     * ambiguous in algebraic notation; that is settled here, while the board is at hand.
+     */
+    Collection<Move> calculateMajorMoves(final Board board,
+                                         final long attacks) {
+        final BitBoard bitBoard = board.getBitBoard();
+        final List<Move> legalMoves = new ArrayList<>(Long.bitCount(attacks));
+        long rivals = bitBoard.getPieces(this.pieceAlliance, this.pieceType) & ~BitBoard.squareMask(this.piecePosition);
+        long contested = 0L;
+        while (rivals != 0) {
+            contested |= BitBoard.attacks(this.pieceType, Long.numberOfTrailingZeros(rivals), bitBoard.getOccupancy());
+            rivals &= rivals - 1;
         }
-        if (!(other instanceof Piece)) {
-            return false;
+        long destinations = attacks & ~bitBoard.getOccupancy(this.pieceAlliance);
+        while (destinations != 0) {
+            final int candidateDestinationCoordinate = Long.numberOfTrailingZeros(destinations);
+            final Piece pieceAtDestination = board.getPiece(candidateDestinationCoordinate);
+            final boolean isAmbiguous = (contested & BitBoard.squareMask(candidateDestinationCoordinate)) != 0;
+            if (pieceAtDestination == null) {
+                legalMoves.add(new MajorMove(this, candidateDestinationCoordinate, isAmbiguous));
+            } else {
+                legalMoves.add(new MajorAttackMove(this, candidateDestinationCoordinate,
+                        pieceAtDestination, isAmbiguous));
+            }
+            destinations &= destinations - 1;
         }
-        final Piece otherPiece = (Piece) other;
-        return this.piecePosition == otherPiece.piecePosition && this.pieceType == otherPiece.pieceType &&
-               this.pieceAlliance == otherPiece.pieceAlliance && this.isFirstMove == otherPiece.isFirstMove;
+        return Collections.unmodifiableList(legalMoves);
     }
 
+    /*
+     * Every piece comes from PieceUtils, so equality is the inherited identity check. The hash
+     * is still derived from the piece state to keep hashed collections ordered the same way
+     * from one run to the next.
+     */
     @Override
     public int hashCode() {
         return this.cachedHashCode;
     }
 
     private int computeHashCode() {
-        int result = this.pieceType.hashCode();
-        result = 31 * result + this.pieceAlliance.hashCode();
+        int result = this.pieceType.ordinal();
+        result = 31 * result + this.pieceAlliance.ordinal();
         result = 31 * result + this.piecePosition;
         result = 31 * result + (this.isFirstMove ? 1 : 0);
         return result;
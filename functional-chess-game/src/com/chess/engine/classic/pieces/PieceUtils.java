@@ -2,92 +2,114 @@ package com.chess.engine.classic.pieces;
 
 import com.chess.engine.classic.Alliance;
 import com.chess.engine.classic.board.BoardUtils;
-import com.google.common.collect.ImmutableTable;
-import com.google.common.collect.Table;
+import com.chess.engine.classic.pieces.Piece.PieceType;
 
-enum PieceUtils {
+/*
+ * The one instance of every piece state: type, alliance, tile, first move and, for kings, the
+ * castled and castle capable flags. Piece constructors are closed to the rest of the engine, so
+ * two pieces are equal exactly when they are the same object.
+ */
+public enum PieceUtils {
 
     INSTANCE;
 
-    private final Table<Alliance, Integer, Queen> ALL_POSSIBLE_QUEENS = PieceUtils.createAllPossibleMovedQueens();
-    private final Table<Alliance, Integer, Rook> ALL_POSSIBLE_ROOKS = PieceUtils.createAllPossibleMovedRooks();
-    private final Table<Alliance, Integer, Knight> ALL_POSSIBLE_KNIGHTS = PieceUtils.createAllPossibleMovedKnights();
-    private final Table<Alliance, Integer, Bishop> ALL_POSSIBLE_BISHOPS = PieceUtils.createAllPossibleMovedBishops();
-    private final Table<Alliance, Integer, Pawn> ALL_POSSIBLE_PAWNS = PieceUtils.createAllPossibleMovedPawns();
+    private static final int FIRST_MOVE = 8;
+    private static final int CASTLED = 4;
+    private static final int KING_SIDE_CASTLE_CAPABLE = 2;
+    private static final int QUEEN_SIDE_CASTLE_CAPABLE = 1;
+    private static final int NUM_STATES = 16;
+    private static final int NUM_PIECE_TYPES = 6;
+
+    private final Piece[] ALL_POSSIBLE_PIECES = PieceUtils.createAllPossiblePieces();
+
+    public Piece getPiece(final PieceType pieceType,
+                          final Alliance alliance,
+                          final int piecePosition) {
+        return getPiece(pieceType, alliance, piecePosition, true);
+    }
+
+    public Piece getPiece(final PieceType pieceType,
+                          final Alliance alliance,
+                          final int piecePosition,
+                          final boolean isFirstMove) {
+        if (pieceType == PieceType.KING) {
+            return getKing(alliance, piecePosition, isFirstMove, false, false, false);
+        }
+        return ALL_POSSIBLE_PIECES[index(pieceType, alliance, piecePosition, isFirstMove ? FIRST_MOVE : 0)];
+    }
+
+    public King getKing(final Alliance alliance,
+                        final int piecePosition,
+                        final boolean kingSideCastleCapable,
+                        final boolean queenSideCastleCapable) {
+        return getKing(alliance, piecePosition, true, false, kingSideCastleCapable, queenSideCastleCapable);
+    }
+
+    public King getKing(final Alliance alliance,
+                        final int piecePosition,
+                        final boolean isFirstMove,
+                        final boolean isCastled,
+                        final boolean kingSideCastleCapable,
+                        final boolean queenSideCastleCapable) {
+        final int state = (isFirstMove ? FIRST_MOVE : 0) | (isCastled ? CASTLED : 0) |
+                          (kingSideCastleCapable ? KING_SIDE_CASTLE_CAPABLE : 0) |
+                          (queenSideCastleCapable ? QUEEN_SIDE_CASTLE_CAPABLE : 0);
+        return (King) ALL_POSSIBLE_PIECES[index(PieceType.KING, alliance, piecePosition, state)];
+    }
 
     Pawn getMovedPawn(final Alliance alliance,
                       final int destinationCoordinate) {
-        return ALL_POSSIBLE_PAWNS.get(alliance, destinationCoordinate);
+        return (Pawn) getPiece(PieceType.PAWN, alliance, destinationCoordinate, false);
     }
 
     Knight getMovedKnight(final Alliance alliance,
                           final int destinationCoordinate) {
-        return ALL_POSSIBLE_KNIGHTS.get(alliance, destinationCoordinate);
+        return (Knight) getPiece(PieceType.KNIGHT, alliance, destinationCoordinate, false);
     }
 
     Bishop getMovedBishop(final Alliance alliance,
                           final int destinationCoordinate) {
-        return ALL_POSSIBLE_BISHOPS.get(alliance, destinationCoordinate);
+        return (Bishop) getPiece(PieceType.BISHOP, alliance, destinationCoordinate, false);
     }
 
     Rook getMovedRook(final Alliance alliance,
                       final int destinationCoordinate) {
-        return ALL_POSSIBLE_ROOKS.get(alliance, destinationCoordinate);
+        return (Rook) getPiece(PieceType.ROOK, alliance, destinationCoordinate, false);
     }
 
     Queen getMovedQueen(final Alliance alliance,
                         final int destinationCoordinate) {
-        return ALL_POSSIBLE_QUEENS.get(alliance, destinationCoordinate);
-    }
-
-    private static Table<Alliance, Integer, Pawn> createAllPossibleMovedPawns() {
-        final ImmutableTable.Builder<Alliance, Integer, Pawn> pieces = ImmutableTable.builder();
-        for(final Alliance alliance : Alliance.values()) {
-            for(int i = 0; i < BoardUtils.NUM_TILES; i++) {
-                pieces.put(alliance, i, new Pawn(alliance, i, false));
-            }
-        }
-        return pieces.build();
-    }
-
-    private static Table<Alliance, Integer, Knight> createAllPossibleMovedKnights() {
-        final ImmutableTable.Builder<Alliance, Integer, Knight> pieces = ImmutableTable.builder();
-        for(final Alliance alliance : Alliance.values()) {
-            for(int i = 0; i < BoardUtils.NUM_TILES; i++) {
-                pieces.put(alliance, i, new Knight(alliance, i, false));
-            }
-        }
-        return pieces.build();
+        return (Queen) getPiece(PieceType.QUEEN, alliance, destinationCoordinate, false);
     }
 
-    private static Table<Alliance, Integer, Bishop> createAllPossibleMovedBishops() {
-        final ImmutableTable.Builder<Alliance, Integer, Bishop> pieces = ImmutableTable.builder();
-        for(final Alliance alliance : Alliance.values()) {
-            for(int i = 0; i < BoardUtils.NUM_TILES; i++) {
-                pieces.put(alliance, i, new Bishop(alliance, i, false));
-            }
-        }
-        return pieces.build();
-    }
-
-    private static Table<Alliance, Integer, Rook> createAllPossibleMovedRooks() {
-        final ImmutableTable.Builder<Alliance, Integer, Rook> pieces = ImmutableTable.builder();
-        for(final Alliance alliance : Alliance.values()) {
-            for(int i = 0; i < BoardUtils.NUM_TILES; i++) {
-                pieces.put(alliance, i, new Rook(alliance, i, false));
-            }
-        }
-        return pieces.build();
+    private static int index(final PieceType pieceType,
+                             final Alliance alliance,
+                             final int piecePosition,
+                             final int state) {
+        final int code = (alliance.isWhite() ? 0 : NUM_PIECE_TYPES) + pieceType.ordinal();
+        return (code * BoardUtils.NUM_TILES + piecePosition) * NUM_STATES + state;
     }
 
-    private static Table<Alliance, Integer, Queen> createAllPossibleMovedQueens() {
-        final ImmutableTable.Builder<Alliance, Integer, Queen> pieces = ImmutableTable.builder();
-        for(final Alliance alliance : Alliance.values()) {
-            for(int i = 0; i < BoardUtils.NUM_TILES; i++) {
-                pieces.put(alliance, i, new Queen(alliance, i, false));
+    private static Piece[] createAllPossiblePieces() {
+        final Piece[] pieces = new Piece[2 * NUM_PIECE_TYPES * BoardUtils.NUM_TILES * NUM_STATES];
+        for (final Alliance alliance : Alliance.values()) {
+            for (int i = 0; i < BoardUtils.NUM_TILES; i++) {
+                for (final boolean isFirstMove : new boolean[] {true, false}) {
+                    final int state = isFirstMove ? FIRST_MOVE : 0;
+                    pieces[index(PieceType.PAWN, alliance, i, state)] = new Pawn(alliance, i, isFirstMove);
+                    pieces[index(PieceType.KNIGHT, alliance, i, state)] = new Knight(alliance, i, isFirstMove);
+                    pieces[index(PieceType.BISHOP, alliance, i, state)] = new Bishop(alliance, i, isFirstMove);
+                    pieces[index(PieceType.ROOK, alliance, i, state)] = new Rook(alliance, i, isFirstMove);
+                    pieces[index(PieceType.QUEEN, alliance, i, state)] = new Queen(alliance, i, isFirstMove);
+                }
+                for (int state = 0; state < NUM_STATES; state++) {
+                    pieces[index(PieceType.KING, alliance, i, state)] = new King(alliance, i,
+                            (state & FIRST_MOVE) != 0, (state & CASTLED) != 0,
+                            (state & KING_SIDE_CASTLE_CAPABLE) != 0, (state & QUEEN_SIDE_CASTLE_CAPABLE) != 0);
+                }
             }
         }
-        return pieces.build();
+        return pieces;
     }
 
 }
@@ -1,6 +1,7 @@
 package com.chess.engine.classic.player;
 
 import com.chess.engine.classic.Alliance;
+import com.chess.engine.classic.board.BitBoard;
 import com.chess.engine.classic.board.Board;
 import com.chess.engine.classic.board.BoardUtils;
 import com.chess.engine.classic.board.Move;
@@ -14,55 +15,43 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 
-import static com.chess.engine.classic.pieces.Piece.PieceType.ROOK;
-
 public final class BlackPlayer extends Player {
 
-    public BlackPlayer(final Board board,
-                       final Collection<Move> whiteStandardLegals,
-                       final Collection<Move> blackStandardLegals) {
-        super(board, blackStandardLegals, whiteStandardLegals);
+    public BlackPlayer(final Board board) {
+        super(board);
     }
 
     @Override
-    protected Collection<Move> calculateKingCastles(final Collection<Move> playerLegals,
-                                                    final Collection<Move> opponentLegals) {
+    protected int getKingSideCastlingRight() {
+        return BoardUtils.BLACK_KING_SIDE_CASTLE;
+    }
+
+    @Override
+    protected int getQueenSideCastlingRight() {
+        return BoardUtils.BLACK_QUEEN_SIDE_CASTLE;
+    }
 
-        if (!hasCastleOpportunities()) {
+    @Override
+    protected Collection<Move> calculateKingCastles() {
+
+        if(!hasCastleOpportunities() || BoardUtils.isKingPawnTrap(this.board, this.playerKing, 12)) {
             return Collections.emptyList();
         }
 
-        final List<Move> kingCastles = new ArrayList<>();
+        final List<Move> kingCastles = new ArrayList<>(2);
+        final long occupancy = this.board.getBitBoard().getOccupancy();
 
-        if (this.playerKing.isFirstMove() && this.playerKing.getPiecePosition() == 4 && !this.isInCheck) {
-            //blacks king side castle
-            if (this.board.getPiece(5) == null && this.board.getPiece(6) == null) {
-                final Piece kingSideRook = this.board.getPiece(7);
-                if (kingSideRook != null && kingSideRook.isFirstMove() &&
-                        Player.calculateAttacksOnTile(5, opponentLegals).isEmpty() &&
-                        Player.calculateAttacksOnTile(6, opponentLegals).isEmpty() &&
-                        kingSideRook.getPieceType() == ROOK) {
-                    if (!BoardUtils.isKingPawnTrap(this.board, this.playerKing, 12)) {
-                        kingCastles.add(
-                                new KingSideCastleMove(this.board, this.playerKing, 6, (Rook) kingSideRook, kingSideRook.getPiecePosition(), 5));
-
-                    }
-                }
-            }
-            //blacks queen side castle
-            if (this.board.getPiece(1) == null && this.board.getPiece(2) == null &&
-                    this.board.getPiece(3) == null) {
-                final Piece queenSideRook = this.board.getPiece(0);
-                if (queenSideRook != null && queenSideRook.isFirstMove() &&
-                        Player.calculateAttacksOnTile(2, opponentLegals).isEmpty() &&
-                        Player.calculateAttacksOnTile(3, opponentLegals).isEmpty() &&
-                        queenSideRook.getPieceType() == ROOK) {
-                    if (!BoardUtils.isKingPawnTrap(this.board, this.playerKing, 12)) {
-                        kingCastles.add(
-                                new QueenSideCastleMove(this.board, this.playerKing, 2, (Rook) queenSideRook, queenSideRook.getPiecePosition(), 3));
-                    }
-                }
-            }
+        //blacks king side castle
+        if(isKingSideCastleCapable() &&
+           (occupancy & (BitBoard.squareMask(5) | BitBoard.squareMask(6))) == 0 &&
+           !isTileAttacked(5) && !isTileAttacked(6)) {
+            kingCastles.add(new KingSideCastleMove(this.playerKing, 6, (Rook) this.board.getPiece(7), 7, 5));
+        }
+        //blacks queen side castle
+        if(isQueenSideCastleCapable() &&
+           (occupancy & (BitBoard.squareMask(3) | BitBoard.squareMask(2) | BitBoard.squareMask(1))) == 0 &&
+           !isTileAttacked(2) && !isTileAttacked(3)) {
+            kingCastles.add(new QueenSideCastleMove(this.playerKing, 2, (Rook) this.board.getPiece(0), 0, 3));
         }
         return Collections.unmodifiableList(kingCastles);
     }
@@ -1,47 +1,55 @@
 package com.chess.engine.classic.player;
 
 import com.chess.engine.classic.Alliance;
+import com.chess.engine.classic.board.BitBoard;
 import com.chess.engine.classic.board.Board;
 import com.chess.engine.classic.board.Move;
 import com.chess.engine.classic.board.Move.MoveStatus;
+import com.chess.engine.classic.board.MoveIndex;
+import com.chess.engine.classic.board.Move.PawnEnPassantAttack;
 import com.chess.engine.classic.board.MoveTransition;
 import com.chess.engine.classic.pieces.King;
 import com.chess.engine.classic.pieces.Piece;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.stream.Collectors;
+import java.util.List;
 
 import static com.chess.engine.classic.pieces.Piece.PieceType.KING;
-import static java.util.stream.Collectors.collectingAndThen;
 
 public abstract class Player {
 
     protected final Board board;
     protected final King playerKing;
-    protected final Collection<Move> legalMoves;
-    protected final boolean isInCheck;
-
-    Player(final Board board,
-           final Collection<Move> playerLegals,
-           final Collection<Move> opponentLegals) {
+    private volatile Collection<Move> standardMoves;
+    private volatile Collection<Move> legalMoves;
+    private volatile MoveIndex moveIndex;
+    private volatile Long checkers;
+    private volatile Long pinnedPieces;
+    private volatile Boolean hasEscapeMoves;
+
+    /*
+     * Moves, check status and castles are worked out on first request and then memoized, so
+     * boards that are only evaluated or cut off never pay for a full two-sided generation.
+     * Each value is computed from immutable state, so threads racing on first use agree and
+     * volatile publication is enough.
+     */
+    Player(final Board board) {
         this.board = board;
         this.playerKing = establishKing();
-        this.isInCheck = !calculateAttacksOnTile(this.playerKing.getPiecePosition(), opponentLegals).isEmpty();
-        playerLegals.addAll(calculateKingCastles(playerLegals, opponentLegals));
-        this.legalMoves = Collections.unmodifiableCollection(playerLegals);
     }
 
     public boolean isInCheck() {
-        return this.isInCheck;
+        return getCheckers() != 0;
     }
 
     public boolean isInCheckMate() {
-       return this.isInCheck && !hasEscapeMoves();
+       return isInCheck() && !hasEscapeMoves();
     }
 
     public boolean isInStaleMate() {
-        return !this.isInCheck && !hasEscapeMoves();
+        return !isInCheck() && !hasEscapeMoves();
     }
 
     public boolean isCastled() {
@@ -49,11 +57,11 @@ public abstract class Player {
     }
 
     public boolean isKingSideCastleCapable() {
-        return this.playerKing.isKingSideCastleCapable();
+        return (this.board.getCastlingRights() & getKingSideCastlingRight()) != 0;
     }
 
     public boolean isQueenSideCastleCapable() {
-        return this.playerKing.isQueenSideCastleCapable();
+        return (this.board.getCastlingRights() & getQueenSideCastlingRight()) != 0;
     }
 
     public King getPlayerKing() {
@@ -61,51 +69,170 @@ public abstract class Player {
     }
 
     private King establishKing() {
-        return (King) getActivePieces().stream()
-                                       .filter(piece -> piece.getPieceType() == KING)
-                                       .findAny()
-                                       .orElseThrow(RuntimeException::new);
+        final long kings = this.board.getBitBoard().getPieces(getAlliance(), KING);
+        if (kings == 0) {
+            throw new RuntimeException();
+        }
+        return (King) this.board.getPiece(Long.numberOfTrailingZeros(kings));
+    }
+
+    /*
+     * Castles are left out: a legal castle implies the king's one-square step towards the rook
+     * is legal too, so the probe never needs the opponent's moves. King moves are tried first
+     * as they are the usual way out of a check.
+     */
+    public boolean hasEscapeMoves() {
+        Boolean hasEscape = this.hasEscapeMoves;
+        if (hasEscape == null) {
+            final Collection<Move> moves = getStandardMoves();
+            hasEscape = moves.stream().anyMatch(move -> move.getMovedPiece().getPieceType() == KING && isLegal(move)) ||
+                        moves.stream().anyMatch(move -> move.getMovedPiece().getPieceType() != KING && isLegal(move));
+            this.hasEscapeMoves = hasEscape;
+        }
+        return hasEscape;
+    }
+
+    private long getCheckers() {
+        Long attackers = this.checkers;
+        if (attackers == null) {
+            final BitBoard bitBoard = this.board.getBitBoard();
+            attackers = bitBoard.attackersTo(this.playerKing.getPiecePosition(),
+                                             getOpponent().getAlliance(), bitBoard.getOccupancy());
+            this.checkers = attackers;
+        }
+        return attackers;
     }
 
-    private boolean hasEscapeMoves() {
-        return this.legalMoves.stream()
-                              .anyMatch(move -> makeMove(move)
-                              .getMoveStatus().isDone());
+    private long getPinnedPieces() {
+        Long pinned = this.pinnedPieces;
+        if (pinned == null) {
+            pinned = this.board.getBitBoard().pinnedPieces(getAlliance(), this.playerKing.getPiecePosition());
+            this.pinnedPieces = pinned;
+        }
+        return pinned;
+    }
+
+    /*
+     * Whether a move from getLegalMoves keeps the king safe, decided from the checkers and
+     * pinned pieces of this position instead of executing the move and looking for check.
+     */
+    private boolean isLegal(final Move move) {
+        if (move.isCastlingMove()) {
+            return true;
+        }
+        final BitBoard bitBoard = this.board.getBitBoard();
+        final int kingSquare = this.playerKing.getPiecePosition();
+        final int from = move.getCurrentCoordinate();
+        final long destination = BitBoard.squareMask(move.getDestinationCoordinate());
+        if (from == kingSquare) {
+            return bitBoard.attackersTo(move.getDestinationCoordinate(), getOpponent().getAlliance(),
+                                        bitBoard.getOccupancy() & ~BitBoard.squareMask(from)) == 0;
+        }
+        if (move instanceof PawnEnPassantAttack) {
+            final long occupancy = (bitBoard.getOccupancy() & ~BitBoard.squareMask(from) &
+                                    ~BitBoard.squareMask(move.getAttackedPiece().getPiecePosition())) | destination;
+            return bitBoard.attackersTo(kingSquare, getOpponent().getAlliance(), occupancy) == 0;
+        }
+        final long attackers = getCheckers();
+        if (attackers != 0 &&
+            (Long.bitCount(attackers) > 1 ||
+             ((attackers | BitBoard.between(kingSquare, Long.numberOfTrailingZeros(attackers))) & destination) == 0)) {
+            return false;
+        }
+        return (getPinnedPieces() & BitBoard.squareMask(from)) == 0 ||
+               (BitBoard.line(kingSquare, from) & destination) != 0;
     }
 
     public Collection<Move> getLegalMoves() {
-        return this.legalMoves;
+        Collection<Move> moves = this.legalMoves;
+        if (moves == null) {
+            final Collection<Move> playerStandardMoves = getStandardMoves();
+            final List<Move> playerLegals = new ArrayList<>(playerStandardMoves.size() + 2);
+            playerLegals.addAll(playerStandardMoves);
+            playerLegals.addAll(calculateKingCastles());
+            moves = Collections.unmodifiableList(playerLegals);
+            this.legalMoves = moves;
+        }
+        return moves;
+    }
+
+    /* Built once per position on first lookup, for callers that know the squares of the move they want. */
+    public MoveIndex getMoveIndex() {
+        MoveIndex index = this.moveIndex;
+        if (index == null) {
+            index = new MoveIndex(getLegalMoves());
+            this.moveIndex = index;
+        }
+        return index;
+    }
+
+    Collection<Move> getStandardMoves() {
+        Collection<Move> moves = this.standardMoves;
+        if (moves == null) {
+            moves = isInCheck() ? calculateEvasions() : calculatePieceMoves();
+            this.standardMoves = moves;
+        }
+        return moves;
     }
 
-    static Collection<Move> calculateAttacksOnTile(final int tile,
-                                                   final Collection<Move> moves) {
-        return moves.stream()
-                    .filter(move -> move.getDestinationCoordinate() == tile)
-                    .collect(collectingAndThen(Collectors.toList(), Collections::unmodifiableList));
+    private Collection<Move> calculatePieceMoves() {
+        final List<Move> pieceMoves = new ArrayList<>();
+        for (final Piece piece : getActivePieces()) {
+            pieceMoves.addAll(piece.calculateLegalMoves(this.board));
+        }
+        return Collections.unmodifiableList(pieceMoves);
+    }
+
+    /*
+     * Out of check only a king move, a capture of the checker or a block on the line between
+     * them can help, so the other pieces are asked for moves onto those tiles alone. Against a
+     * double check the king has to move.
+     */
+    private Collection<Move> calculateEvasions() {
+        final long attackers = getCheckers();
+        final int kingSquare = this.playerKing.getPiecePosition();
+        final long targets = Long.bitCount(attackers) > 1 ? 0L :
+                attackers | BitBoard.between(kingSquare, Long.numberOfTrailingZeros(attackers));
+        final List<Move> evasions = new ArrayList<>();
+        for (final Piece piece : getActivePieces()) {
+            if (piece == this.playerKing) {
+                evasions.addAll(piece.calculateLegalMoves(this.board));
+            } else if (targets != 0) {
+                evasions.addAll(piece.calculateLegalMoves(this.board, targets));
+            }
+        }
+        return Collections.unmodifiableList(evasions);
+    }
+
+    /* Transit squares are probed against the opponent's pieces directly; no opponent moves are generated. */
+    boolean isTileAttacked(final int tile) {
+        final BitBoard bitBoard = this.board.getBitBoard();
+        return bitBoard.attackersTo(tile, getOpponent().getAlliance(), bitBoard.getOccupancy()) != 0;
     }
 
     public MoveTransition makeMove(final Move move) {
-        if (!this.legalMoves.contains(move)) {
+        if (!getMoveIndex().contains(move)) {
             return new MoveTransition(this.board, this.board, move, MoveStatus.ILLEGAL_MOVE);
         }
-        final Board transitionedBoard = move.execute();
-        return transitionedBoard.currentPlayer().getOpponent().isInCheck() ?
-                new MoveTransition(this.board, this.board, move, MoveStatus.LEAVES_PLAYER_IN_CHECK) :
-                new MoveTransition(this.board, transitionedBoard, move, MoveStatus.DONE);
+        if (!isLegal(move)) {
+            return new MoveTransition(this.board, this.board, move, MoveStatus.LEAVES_PLAYER_IN_CHECK);
+        }
+        return new MoveTransition(this.board, move.execute(this.board), move, MoveStatus.DONE);
     }
 
     public MoveTransition unMakeMove(final Move move) {
-        return new MoveTransition(this.board, move.undo(), move, MoveStatus.DONE);
+        return new MoveTransition(this.board, move.undo(this.board), move, MoveStatus.DONE);
     }
 
     public abstract Collection<Piece> getActivePieces();
     public abstract Alliance getAlliance();
     public abstract Player getOpponent();
-    protected abstract Collection<Move> calculateKingCastles(Collection<Move> playerLegals,
-                                                             Collection<Move> opponentLegals);
+    protected abstract int getKingSideCastlingRight();
+    protected abstract int getQueenSideCastlingRight();
+    protected abstract Collection<Move> calculateKingCastles();
     protected boolean hasCastleOpportunities() {
-        return !this.isInCheck && !this.playerKing.isCastled() &&
-                (this.playerKing.isKingSideCastleCapable() || this.playerKing.isQueenSideCastleCapable());
+        return !isInCheck() && !this.playerKing.isCastled() &&
+                (isKingSideCastleCapable() || isQueenSideCastleCapable());
     }
 
 }
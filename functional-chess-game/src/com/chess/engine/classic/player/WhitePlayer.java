@@ -1,6 +1,7 @@
 package com.chess.engine.classic.player;
 
 import com.chess.engine.classic.Alliance;
+import com.chess.engine.classic.board.BitBoard;
 import com.chess.engine.classic.board.Board;
 import com.chess.engine.classic.board.BoardUtils;
 import com.chess.engine.classic.board.Move;
@@ -14,53 +15,43 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 
-import static com.chess.engine.classic.pieces.Piece.PieceType.ROOK;
-
 public final class WhitePlayer extends Player {
 
-    public WhitePlayer(final Board board,
-                       final Collection<Move> whiteStandardLegals,
-                       final Collection<Move> blackStandardLegals) {
-        super(board, whiteStandardLegals, blackStandardLegals);
+    public WhitePlayer(final Board board) {
+        super(board);
+    }
+
+    @Override
+    protected int getKingSideCastlingRight() {
+        return BoardUtils.WHITE_KING_SIDE_CASTLE;
+    }
+
+    @Override
+    protected int getQueenSideCastlingRight() {
+        return BoardUtils.WHITE_QUEEN_SIDE_CASTLE;
     }
 
     @Override
-    protected Collection<Move> calculateKingCastles(final Collection<Move> playerLegals,
-                                                    final Collection<Move> opponentLegals) {
+    protected Collection<Move> calculateKingCastles() {
 
-        if(!hasCastleOpportunities()) {
+        if(!hasCastleOpportunities() || BoardUtils.isKingPawnTrap(this.board, this.playerKing, 52)) {
             return Collections.emptyList();
         }
 
-        final List<Move> kingCastles = new ArrayList<>();
+        final List<Move> kingCastles = new ArrayList<>(2);
+        final long occupancy = this.board.getBitBoard().getOccupancy();
 
-        if(this.playerKing.isFirstMove() && this.playerKing.getPiecePosition() == 60 && !this.isInCheck()) {
-            //whites king side castle
-            if(this.board.getPiece(61) == null && this.board.getPiece(62) == null) {
-                final Piece kingSideRook = this.board.getPiece(63);
-                if(kingSideRook != null && kingSideRook.isFirstMove()) {
-                    if(Player.calculateAttacksOnTile(61, opponentLegals).isEmpty() &&
-                       Player.calculateAttacksOnTile(62, opponentLegals).isEmpty() &&
-                       kingSideRook.getPieceType() == ROOK) {
-                        if(!BoardUtils.isKingPawnTrap(this.board, this.playerKing, 52)) {
-                            kingCastles.add(new KingSideCastleMove(this.board, this.playerKing, 62, (Rook) kingSideRook, kingSideRook.getPiecePosition(), 61));
-                        }
-                    }
-                }
-            }
-            //whites queen side castle
-            if(this.board.getPiece(59) == null && this.board.getPiece(58) == null &&
-               this.board.getPiece(57) == null) {
-                final Piece queenSideRook = this.board.getPiece(56);
-                if(queenSideRook != null && queenSideRook.isFirstMove()) {
-                    if(Player.calculateAttacksOnTile(58, opponentLegals).isEmpty() &&
-                       Player.calculateAttacksOnTile(59, opponentLegals).isEmpty() && queenSideRook.getPieceType() == ROOK) {
-                        if(!BoardUtils.isKingPawnTrap(this.board, this.playerKing, 52)) {
-                            kingCastles.add(new QueenSideCastleMove(this.board, this.playerKing, 58, (Rook) queenSideRook, queenSideRook.getPiecePosition(), 59));
-                        }
-                    }
-                }
-            }
+        //whites king side castle
+        if(isKingSideCastleCapable() &&
+           (occupancy & (BitBoard.squareMask(61) | BitBoard.squareMask(62))) == 0 &&
+           !isTileAttacked(61) && !isTileAttacked(62)) {
+            kingCastles.add(new KingSideCastleMove(this.playerKing, 62, (Rook) this.board.getPiece(63), 63, 61));
+        }
+        //whites queen side castle
+        if(isQueenSideCastleCapable() &&
+           (occupancy & (BitBoard.squareMask(59) | BitBoard.squareMask(58) | BitBoard.squareMask(57))) == 0 &&
+           !isTileAttacked(58) && !isTileAttacked(59)) {
+            kingCastles.add(new QueenSideCastleMove(this.playerKing, 58, (Rook) this.board.getPiece(56), 56, 59));
         }
         return Collections.unmodifiableList(kingCastles);
     }
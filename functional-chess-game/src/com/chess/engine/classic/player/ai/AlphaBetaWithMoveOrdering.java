@@ -2,18 +2,17 @@ package com.chess.engine.classic.player.ai;
 
 import com.chess.engine.classic.Alliance;
 import com.chess.engine.classic.board.Board;
-import com.chess.engine.classic.board.BoardUtils;
 import com.chess.engine.classic.board.Move;
-import com.chess.engine.classic.board.MoveTransition;
+import com.chess.engine.classic.board.MoveList;
+import com.chess.engine.classic.board.SearchBoard;
 import com.chess.engine.classic.player.Player;
-import com.google.common.collect.ComparisonChain;
-import com.google.common.collect.Ordering;
 
-import java.util.Collection;
-import java.util.Comparator;
+import java.util.List;
 import java.util.Observable;
 
 import static com.chess.engine.classic.board.Move.*;
+import static com.chess.engine.classic.player.ai.NegamaxSearch.MoveOrderer;
+import static com.chess.engine.classic.player.ai.NegamaxSearch.RootOrderer;
 
 import java.util.ArrayList;
 
@@ -21,49 +20,39 @@ public class AlphaBetaWithMoveOrdering extends Observable implements MoveStrateg
 
     private final BoardEvaluator evaluator;
     private final int searchDepth;
-    private final MoveSorter moveSorter;
+    private final MoveOrderer moveSorter;
     private final int quiescenceFactor;
-    private long boardsEvaluated;
+    private final NegamaxSearch search;
     private long executionTime;
-    private int quiescenceCount;
-    private int cutOffsProduced;
 
     // List to store total time taken to calculate each move.
     public static ArrayList<Long> moveTimes = new ArrayList<Long>();
 
-    private enum MoveSorter {
-
-        SORT {
-            @Override
-            Collection<Move> sort(final Collection<Move> moves) {
-                return Ordering.from(SMART_SORT).immutableSortedCopy(moves);
-            }
-        };
-
-        public static Comparator<Move> SMART_SORT = new Comparator<Move>() {
-            @Override
-            public int compare(final Move move1, final Move move2) {
-                return ComparisonChain.start()
-                        .compareTrueFirst(BoardUtils.isThreatenedBoardImmediate(move1.getBoard()), BoardUtils.isThreatenedBoardImmediate(move2.getBoard()))
-                        .compareTrueFirst(move1.isAttack(), move2.isAttack())
-                        .compareTrueFirst(move1.isCastlingMove(), move2.isCastlingMove())
-                        .compare(move2.getMovedPiece().getPieceValue(), move1.getMovedPiece().getPieceValue())
-                        .result();
-            }
-        };
+    public AlphaBetaWithMoveOrdering(final int searchDepth,
+                                     final int quiescenceFactor) {
+        this(searchDepth, quiescenceFactor, false, false);
+    }
 
-        abstract Collection<Move> sort(Collection<Move> moves);
+    public AlphaBetaWithMoveOrdering(final int searchDepth,
+                                     final int quiescenceFactor,
+                                     final boolean isNullMovePruning,
+                                     final boolean isLateMoveReductions) {
+        this(searchDepth, quiescenceFactor, isNullMovePruning, isLateMoveReductions, new PruningMargins.Builder().build());
     }
 
     public AlphaBetaWithMoveOrdering(final int searchDepth,
-                                     final int quiescenceFactor) {
+                                     final int quiescenceFactor,
+                                     final boolean isNullMovePruning,
+                                     final boolean isLateMoveReductions,
+                                     final PruningMargins pruningMargins) {
         this.evaluator = StandardBoardEvaluator.get();
         this.searchDepth = searchDepth;
         this.quiescenceFactor = quiescenceFactor;
-        this.moveSorter = MoveSorter.SORT;
-        this.boardsEvaluated = 0;
-        this.quiescenceCount = 0;
-        this.cutOffsProduced = 0;
+        this.moveSorter = RootOrderer.HISTORY;
+        this.search = new NegamaxSearch(this.evaluator);
+        this.search.setNullMovePruning(isNullMovePruning);
+        this.search.setLateMoveReductions(isLateMoveReductions);
+        this.search.setPruningMargins(pruningMargins);
     }
 
     @Override
@@ -73,7 +62,7 @@ public class AlphaBetaWithMoveOrdering extends Observable implements MoveStrateg
 
     @Override
     public long getNumBoardsEvaluated() {
-        return this.boardsEvaluated;
+        return this.search.getBoardsEvaluated();
     }
 
     @Override
@@ -81,107 +70,50 @@ public class AlphaBetaWithMoveOrdering extends Observable implements MoveStrateg
         final long startTime = System.currentTimeMillis();
         final Player currentPlayer = board.currentPlayer();
         final Alliance alliance = currentPlayer.getAlliance();
+        final SearchBoard searchBoard = new SearchBoard(board);
+        this.search.getSearchHistory().age();
+        final MoveList moves = searchBoard.getMoveList();
+        searchBoard.generateMoves(moves);
+        this.moveSorter.sort(searchBoard, moves, this.search.getSearchHistory());
+        final int numMoves = moves.size();
+        final List<Move> orderedMoves = new ArrayList<>(numMoves);
+        for (int i = 0; i < numMoves; i++) {
+            orderedMoves.add(MoveFactory.createMove(board, moves.get(i)));
+        }
         Move bestMove = MoveFactory.getNullMove();
-        int highestSeenValue = Integer.MIN_VALUE;
-        int lowestSeenValue = Integer.MAX_VALUE;
+        int bestValue = -NegamaxSearch.INFINITY;
         int currentValue;
-        int moveCounter = 1;
-        final int numMoves = this.moveSorter.sort(board.currentPlayer().getLegalMoves()).size();
         System.out.println(board.currentPlayer() + " THINKING with depth = " + this.searchDepth);
-        System.out.println("\tOrdered moves! : " + this.moveSorter.sort(board.currentPlayer().getLegalMoves()));
-        for (final Move move : this.moveSorter.sort(board.currentPlayer().getLegalMoves())) {
-            final MoveTransition moveTransition = board.currentPlayer().makeMove(move);
-            this.quiescenceCount = 0;
+        System.out.println("\tOrdered moves! : " + orderedMoves);
+        for (int i = 0; i < numMoves; i++) {
+            final Move move = orderedMoves.get(i);
             final String s;
-            if (moveTransition.getMoveStatus().isDone()) {
-                final long candidateMoveStartTime = System.nanoTime();
-                currentValue = alliance.isWhite() ?
-                        min(moveTransition.getToBoard(), this.searchDepth - 1, highestSeenValue, lowestSeenValue) :
-                        max(moveTransition.getToBoard(), this.searchDepth - 1, highestSeenValue, lowestSeenValue);
-                if (alliance.isWhite() && currentValue > highestSeenValue) {
-                    highestSeenValue = currentValue;
-                    bestMove = move;
-                    //setChanged();
-                    //notifyObservers(bestMove);
-                }
-                else if (alliance.isBlack() && currentValue < lowestSeenValue) {
-                    lowestSeenValue = currentValue;
-                    bestMove = move;
-                    //setChanged();
-                    //notifyObservers(bestMove);
-                }
-                final String quiescenceInfo = " [h: " +highestSeenValue+ " l: " +lowestSeenValue+ "] q: " +this.quiescenceCount;
-                s = "\t" + toString() + "(" +this.searchDepth+ "), m: (" +moveCounter+ "/" +numMoves+ ") " + move + ", best:  " + bestMove
-
-                        + quiescenceInfo + ", t: " +calculateTimeTaken(candidateMoveStartTime, System.nanoTime());
-            } else {
-                s = "\t" + toString() + ", m: (" +moveCounter+ "/" +numMoves+ ") " + move + " is illegal, best: " +bestMove;
+            searchBoard.makeMove(moves.get(i));
+            final long candidateMoveStartTime = System.nanoTime();
+            currentValue = this.search.searchChild(searchBoard, this.searchDepth - 1, bestValue, NegamaxSearch.INFINITY, i == 0);
+            searchBoard.unmakeMove();
+            if (currentValue > bestValue) {
+                bestValue = currentValue;
+                bestMove = move;
+                //setChanged();
+                //notifyObservers(bestMove);
             }
+            final String quiescenceInfo = " [score: " +(alliance.isWhite() ? bestValue : -bestValue)+ "] q: " +this.search.getQuiescenceNodes();
+            s = "\t" + toString() + "(" +this.searchDepth+ "), m: (" +(i + 1)+ "/" +numMoves+ ") " + move + ", best:  " + bestMove
+
+                    + quiescenceInfo + ", t: " +calculateTimeTaken(candidateMoveStartTime, System.nanoTime());
             System.out.println(s);
             setChanged();
             notifyObservers(s);
-            moveCounter++;
         }
         this.executionTime = System.currentTimeMillis() - startTime;
         moveTimes.add(this.executionTime);
         System.out.printf("%s SELECTS %s [#boards evaluated = %d, time taken = %d ms, eval rate = %.1f cutoffCount = %d prune percent = %.2f\n", board.currentPlayer(),
-                bestMove, this.boardsEvaluated, this.executionTime, (1000 * ((double)this.boardsEvaluated/this.executionTime)), this.cutOffsProduced, 100 * ((double)this.cutOffsProduced/this.boardsEvaluated));
+                bestMove, this.search.getBoardsEvaluated(), this.executionTime, (1000 * ((double)this.search.getBoardsEvaluated()/this.executionTime)), this.search.getCutOffsProduced(), 100 * ((double)this.search.getCutOffsProduced()/this.search.getBoardsEvaluated()));
         System.out.println("Move times: " + moveTimes);
         return bestMove;
     }
 
-    public int max(final Board board,
-                   final int depth,
-                   final int highest,
-                   final int lowest) {
-        if (depth == 0 || BoardUtils.isEndGame(board)) {
-            this.boardsEvaluated++;
-            return this.evaluator.evaluate(board, depth);
-        }
-        int currentHighest = highest;
-        for (final Move move : this.moveSorter.sort((board.currentPlayer().getLegalMoves()))) {
-            final MoveTransition moveTransition = board.currentPlayer().makeMove(move);
-            if (moveTransition.getMoveStatus().isDone()) {
-                currentHighest = Math.max(currentHighest, min(moveTransition.getToBoard(),
-                        calculateQuiescenceDepth(board, move, depth), currentHighest, lowest));
-                if (lowest <= currentHighest) {
-                    this.cutOffsProduced++;
-                    break;
-                }
-            }
-        }
-        return currentHighest;
-    }
-
-    public int min(final Board board,
-                   final int depth,
-                   final int highest,
-                   final int lowest) {
-        if (depth == 0 || BoardUtils.isEndGame(board)) {
-            this.boardsEvaluated++;
-            return this.evaluator.evaluate(board, depth);
-        }
-        int currentLowest = lowest;
-        for (final Move move : this.moveSorter.sort((board.currentPlayer().getLegalMoves()))) {
-            final MoveTransition moveTransition = board.currentPlayer().makeMove(move);
-            if (moveTransition.getMoveStatus().isDone()) {
-                currentLowest = Math.min(currentLowest, max(moveTransition.getToBoard(),
-                        calculateQuiescenceDepth(board, move, depth), highest, currentLowest));
-                if (currentLowest <= highest) {
-                    this.cutOffsProduced++;
-                    break;
-                }
-            }
-        }
-        return currentLowest;
-    }
-
-    private int calculateQuiescenceDepth(final Board board,
-                                         final Move move,
-                                         final int depth) {
-        return depth - 1;
-    }
-
     private static String calculateTimeTaken(final long start, final long end) {
         final long timeTaken = (end - start) / 1000000;
         return timeTaken + " ms";
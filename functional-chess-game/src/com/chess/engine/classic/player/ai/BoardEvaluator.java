@@ -1,9 +1,12 @@
 package com.chess.engine.classic.player.ai;
 
 import com.chess.engine.classic.board.Board;
+import com.chess.engine.classic.board.SearchBoard;
 
 public interface BoardEvaluator {
 
     int evaluate(Board board, int depth);
 
+    int evaluate(SearchBoard board, int depth);
+
 }
@@ -1,54 +1,57 @@
 package com.chess.engine.classic.player.ai;
 
 import com.chess.engine.classic.board.Board;
-import com.chess.engine.classic.board.BoardUtils;
 import com.chess.engine.classic.board.Move;
-import com.chess.engine.classic.board.MoveTransition;
-import com.google.common.collect.ComparisonChain;
-import com.google.common.primitives.Ints;
+import com.chess.engine.classic.board.MoveList;
+import com.chess.engine.classic.board.SearchBoard;
 
-import java.util.*;
+import java.util.Observable;
 
 import static com.chess.engine.classic.board.Move.*;
-import static com.google.common.collect.Ordering.from;
+import static com.chess.engine.classic.player.ai.NegamaxSearch.MoveOrderer;
+import static com.chess.engine.classic.player.ai.NegamaxSearch.RootOrderer;
 
 public class IterativeDeepening extends Observable implements MoveStrategy {
 
+    /* Half width of the window opened around the previous iteration's score. */
+    private static final int ASPIRATION_WINDOW = 50;
+    /* Completed iterations agreeing on the best move before it counts as settled. */
+    private static final int STABLE_ITERATIONS = 3;
+
     private final BoardEvaluator evaluator;
-    private final int searchDepth;
-    private final MoveSorter moveSorter;
+    private final SearchLimits searchLimits;
+    private final boolean isNullMovePruning;
+    private final boolean isLateMoveReductions;
+    private final PruningMargins pruningMargins;
+    private final MoveOrderer moveSorter;
     private long boardsEvaluated;
     private long executionTime;
     private int cutOffsProduced;
 
-    private enum MoveSorter {
+    public IterativeDeepening(final int searchDepth) {
+        this(SearchLimits.depth(searchDepth));
+    }
 
-        SORT {
-            @Override
-            Collection<Move> sort(final Collection<Move> moves) {
-                return from(SMART_SORT).immutableSortedCopy(moves);
-            }
-        };
-
-        public static Comparator<Move> SMART_SORT = new Comparator<Move>() {
-            @Override
-            public int compare(final Move move1, final Move move2) {
-                return ComparisonChain.start()
-                        .compareTrueFirst(BoardUtils.isThreatenedBoardImmediate(move1.getBoard()), BoardUtils.isThreatenedBoardImmediate(move2.getBoard()))
-                        .compareTrueFirst(move1.isAttack(), move2.isAttack())
-                        .compareTrueFirst(move1.isCastlingMove(), move2.isCastlingMove())
-                        .compare(move2.getMovedPiece().getPieceValue(), move1.getMovedPiece().getPieceValue())
-                        .result();
-            }
-        };
+    public IterativeDeepening(final SearchLimits searchLimits) {
+        this(searchLimits, false, false);
+    }
 
-        abstract Collection<Move> sort(Collection<Move> moves);
+    public IterativeDeepening(final SearchLimits searchLimits,
+                              final boolean isNullMovePruning,
+                              final boolean isLateMoveReductions) {
+        this(searchLimits, isNullMovePruning, isLateMoveReductions, new PruningMargins.Builder().build());
     }
 
-    public IterativeDeepening(final int searchDepth) {
+    public IterativeDeepening(final SearchLimits searchLimits,
+                              final boolean isNullMovePruning,
+                              final boolean isLateMoveReductions,
+                              final PruningMargins pruningMargins) {
         this.evaluator = StandardBoardEvaluator.get();
-        this.searchDepth = searchDepth;
-        this.moveSorter = MoveSorter.SORT;
+        this.searchLimits = searchLimits;
+        this.isNullMovePruning = isNullMovePruning;
+        this.isLateMoveReductions = isLateMoveReductions;
+        this.pruningMargins = pruningMargins;
+        this.moveSorter = RootOrderer.HISTORY;
         this.boardsEvaluated = 0;
         this.cutOffsProduced = 0;
     }
@@ -63,188 +66,95 @@ public class IterativeDeepening extends Observable implements MoveStrategy {
         return this.boardsEvaluated;
     }
 
+    /*
+     * Searches one ply deeper each iteration with the best move so far tried first. From the
+     * second iteration on the root window is only ASPIRATION_WINDOW either side of the last
+     * score, which lets most of the tree be cut off; a result on the edge of the window means
+     * the score moved out of it and that side is reopened for a second search.
+     *
+     * With a time budget the search is cut off at the budget and the unfinished iteration is
+     * thrown away, so the move returned is always the best of a completed one. As the next
+     * iteration takes several times longer than the last, none is started once half the budget
+     * has gone, or a quarter of it when the best move has not changed for STABLE_ITERATIONS.
+     */
     @Override
     public Move execute(final Board board) {
 
         final long startTime = System.currentTimeMillis();
-        System.out.println(board.currentPlayer() + " THINKING with depth = " + this.searchDepth);
-
-        MoveOrderingBuilder builder = new MoveOrderingBuilder();
-        builder.setOrder(board.currentPlayer().getAlliance().isWhite() ? Ordering.DESC : Ordering.ASC);
-        for(final Move move : board.currentPlayer().getLegalMoves()) {
-            builder.addMoveOrderingRecord(move, 0);
-        }
+        final boolean isTimed = this.searchLimits.isTimed();
+        final long budget = this.searchLimits.calculateBudget();
+        System.out.println(board.currentPlayer() + " THINKING with " + this.searchLimits);
+
+        final SearchBoard searchBoard = new SearchBoard(board);
+        final NegamaxSearch search = new NegamaxSearch(this.evaluator);
+        search.setNullMovePruning(this.isNullMovePruning);
+        search.setLateMoveReductions(this.isLateMoveReductions);
+        search.setPruningMargins(this.pruningMargins);
+        final MoveList rootMoves = searchBoard.getMoveList();
+        searchBoard.generateMoves(rootMoves);
+        this.moveSorter.sort(searchBoard, rootMoves, search.getSearchHistory());
 
         Move bestMove = MoveFactory.getNullMove();
+        int bestValue = 0;
+        int stableIterations = 0;
         int currentDepth = 1;
 
-        int highestSeenValue = Integer.MIN_VALUE;
-        int lowestSeenValue = Integer.MAX_VALUE;
-
-        while (currentDepth <= this.searchDepth) {
+        while (currentDepth <= this.searchLimits.getMaxDepth() && !rootMoves.isEmpty()) {
+            final long elapsed = System.currentTimeMillis() - startTime;
+            if (currentDepth > 1 && isTimed &&
+                elapsed >= (stableIterations >= STABLE_ITERATIONS ? budget / 4 : budget / 2)) {
+                break;
+            }
+            /* the first iteration always completes, so there is a move to return */
+            if (currentDepth > 1 && isTimed) {
+                search.setDeadline(startTime + budget);
+            }
             final long subTimeStart = System.currentTimeMillis();
-            //int highestSeenValue = Integer.MIN_VALUE;
-            //int lowestSeenValue = Integer.MAX_VALUE;
-            int currentValue;
-            final List<MoveScoreRecord> records = builder.build();
-            builder = new MoveOrderingBuilder();
-            builder.setOrder(board.currentPlayer().getAlliance().isWhite() ? Ordering.DESC : Ordering.ASC);
-            for (final MoveScoreRecord record : records) {
-                final Move move = record.getMove();
-                final MoveTransition moveTransition = board.currentPlayer().makeMove(move);
-                if (moveTransition.getMoveStatus().isDone()) {
-                    currentValue = board.currentPlayer().getAlliance().isWhite() ?
-                            min(moveTransition.getToBoard(), currentDepth - 1, highestSeenValue, lowestSeenValue) :
-                            max(moveTransition.getToBoard(), currentDepth - 1, highestSeenValue, lowestSeenValue);
-                    builder.addMoveOrderingRecord(move, currentValue);
-                    if (board.currentPlayer().getAlliance().isWhite() && currentValue > highestSeenValue) {
-                        highestSeenValue = currentValue;
-                        bestMove = move;
-                    } else if (board.currentPlayer().getAlliance().isBlack() && currentValue < lowestSeenValue) {
-                        lowestSeenValue = currentValue;
-                        bestMove = move;
-                    }
+            int alpha = currentDepth == 1 ? -NegamaxSearch.INFINITY : bestValue - ASPIRATION_WINDOW;
+            int beta = currentDepth == 1 ? NegamaxSearch.INFINITY : bestValue + ASPIRATION_WINDOW;
+            int currentValue = search.searchRoot(searchBoard, rootMoves, currentDepth, alpha, beta);
+            while (!search.isAborted() && (currentValue <= alpha || currentValue >= beta)) {
+                System.out.println("\t" +toString()+ " Depth = " +currentDepth+ " missed window [" +alpha+ ", " +beta+ "] with " +currentValue);
+                if (currentValue <= alpha) {
+                    alpha = -NegamaxSearch.INFINITY;
+                } else {
+                    beta = NegamaxSearch.INFINITY;
                 }
+                currentValue = search.searchRoot(searchBoard, rootMoves, currentDepth, alpha, beta);
+            }
+            if (search.isAborted()) {
+                System.out.println("\t" +toString()+ " Depth = " +currentDepth+ " stopped at the deadline after " +
+                        (System.currentTimeMillis() - subTimeStart) + " ms");
+                break;
             }
+            bestValue = currentValue;
+            final int bestIndex = search.getBestRootMoveIndex();
+            stableIterations = bestIndex == 0 ? stableIterations + 1 : 1;
+            promoteToFront(rootMoves, bestIndex);
+            bestMove = MoveFactory.createMove(board, rootMoves.get(0));
             final long subTime = System.currentTimeMillis()- subTimeStart;
-            System.out.println("\t" +toString()+ " bestMove = " +bestMove+ " Depth = " +currentDepth+ " took " +(subTime) + " ms, ordered moves : " +records);
+            System.out.println("\t" +toString()+ " bestMove = " +bestMove+ " Depth = " +currentDepth+ " took " +(subTime) + " ms, score : " +bestValue);
             setChanged();
             notifyObservers(bestMove);
             currentDepth++;
         }
+        this.boardsEvaluated += search.getBoardsEvaluated();
+        this.cutOffsProduced += search.getCutOffsProduced();
         this.executionTime = System.currentTimeMillis() - startTime;
         System.out.printf("%s SELECTS %s [#boards evaluated = %d, time taken = %d ms, eval rate = %.1f cutoffCount = %d prune percent = %.2f\n", board.currentPlayer(),
                 bestMove, this.boardsEvaluated, this.executionTime, (1000 * ((double)this.boardsEvaluated/this.executionTime)), this.cutOffsProduced, 100 * ((double)this.cutOffsProduced/this.boardsEvaluated));
+        System.out.printf("\tpruned: futility = %d, razor = %d, delta = %d, losing captures = %d\n",
+                search.getFutilityPrunes(), search.getRazorPrunes(), search.getDeltaPrunes(), search.getLosingCapturePrunes());
         return bestMove;
     }
 
-    public int max(final Board board,
-                   final int depth,
-                   final int highest,
-                   final int lowest) {
-        if (depth == 0 || BoardUtils.isEndGame(board)) {
-            this.boardsEvaluated++;
-            return this.evaluator.evaluate(board, depth);
+    /* Moves the given root move to the front, keeping the others in their current order. */
+    private static void promoteToFront(final MoveList moves,
+                                       final int index) {
+        for (int i = 0; i < moves.size(); i++) {
+            moves.setScore(i, i == index ? Integer.MAX_VALUE : -i);
         }
-        int currentHighest = highest;
-        for (final Move move : this.moveSorter.sort((board.currentPlayer().getLegalMoves()))) {
-            final MoveTransition moveTransition = board.currentPlayer().makeMove(move);
-            if (moveTransition.getMoveStatus().isDone()) {
-                currentHighest = Math.max(currentHighest, min(moveTransition.getToBoard(),
-                        depth - 1, currentHighest, lowest));
-                if (lowest <= currentHighest) {
-                    this.cutOffsProduced++;
-                    break;
-                }
-            }
-        }
-        return currentHighest;
+        moves.sort();
     }
 
-    public int min(final Board board,
-                   final int depth,
-                   final int highest,
-                   final int lowest) {
-        if (depth == 0 || BoardUtils.isEndGame(board)) {
-            this.boardsEvaluated++;
-            return this.evaluator.evaluate(board, depth);
-        }
-        int currentLowest = lowest;
-        for (final Move move : this.moveSorter.sort((board.currentPlayer().getLegalMoves()))) {
-            final MoveTransition moveTransition = board.currentPlayer().makeMove(move);
-            if (moveTransition.getMoveStatus().isDone()) {
-                currentLowest = Math.min(currentLowest, max(moveTransition.getToBoard(),
-                        depth - 1, highest, currentLowest));
-                if (currentLowest <= highest) {
-                    this.cutOffsProduced++;
-                    break;
-                }
-            }
-        }
-        return currentLowest;
-    }
-
-    private static class MoveScoreRecord implements Comparable<MoveScoreRecord> {
-        final Move move;
-        final int score;
-
-        MoveScoreRecord(final Move move, final int score) {
-            this.move = move;
-            this.score = score;
-        }
-
-        Move getMove() {
-            return this.move;
-        }
-
-        int getScore() {
-            return this.score;
-        }
-
-        @Override
-        public int compareTo(MoveScoreRecord o) {
-            return Integer.compare(this.score, o.score);
-        }
-
-        @Override
-        public String toString() {
-            return this.move + " : " +this.score;
-        }
-    }
-
-    enum Ordering {
-        ASC {
-            @Override
-            List<MoveScoreRecord> order(final List<MoveScoreRecord> moveScoreRecords) {
-                Collections.sort(moveScoreRecords, new Comparator<MoveScoreRecord>() {
-                    @Override
-                    public int compare(final MoveScoreRecord o1,
-                                       final MoveScoreRecord o2) {
-                        return Ints.compare(o1.getScore(), o2.getScore());
-                    }
-                });
-                return moveScoreRecords;
-            }
-        },
-        DESC {
-            @Override
-            List<MoveScoreRecord> order(final List<MoveScoreRecord> moveScoreRecords) {
-                Collections.sort(moveScoreRecords, new Comparator<MoveScoreRecord>() {
-                    @Override
-                    public int compare(final MoveScoreRecord o1,
-                                       final MoveScoreRecord o2) {
-                        return Ints.compare(o2.getScore(), o1.getScore());
-                    }
-                });
-                return moveScoreRecords;
-            }
-        };
-
-        abstract List<MoveScoreRecord> order(final List<MoveScoreRecord> moveScoreRecords);
-    }
-
-
-    private static class MoveOrderingBuilder {
-        List<MoveScoreRecord> moveScoreRecords;
-        Ordering ordering;
-
-        MoveOrderingBuilder() {
-            this.moveScoreRecords = new ArrayList<>();
-        }
-
-        void addMoveOrderingRecord(final Move move,
-                                   final int score) {
-            this.moveScoreRecords.add(new MoveScoreRecord(move, score));
-        }
-
-        void setOrder(final Ordering order) {
-            this.ordering = order;
-        }
-
-        List<MoveScoreRecord> build() {
-            return this.ordering.order(moveScoreRecords);
-        }
-    }
-
-
-}
\ No newline at end of file
+}
@@ -93,7 +93,7 @@ public final class MiniMax implements MoveStrategy {
             this.freqTable[this.freqTableIndex].increment();
             return this.evaluator.evaluate(board, depth);
         }
-        if(isEndGameScenario(board)) {
+        if(BoardUtils.isEndGame(board)) {
             return this.evaluator.evaluate(board, depth);
         }
         int lowestSeenValue = Integer.MAX_VALUE;
@@ -116,7 +116,7 @@ public final class MiniMax implements MoveStrategy {
             this.freqTable[this.freqTableIndex].increment();
             return this.evaluator.evaluate(board, depth);
         }
-        if(isEndGameScenario(board)) {
+        if(BoardUtils.isEndGame(board)) {
             return this.evaluator.evaluate(board, depth);
         }
         int highestSeenValue = Integer.MIN_VALUE;
@@ -132,9 +132,6 @@ public final class MiniMax implements MoveStrategy {
         return highestSeenValue;
     }
 
-    private static boolean isEndGameScenario(final Board board) {
-        return board.currentPlayer().isInCheckMate() || board.currentPlayer().isInStaleMate();
-    }
 
     private static class FreqTableRow {
 
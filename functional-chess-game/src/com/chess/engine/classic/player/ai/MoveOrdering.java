@@ -2,6 +2,7 @@ package com.chess.engine.classic.player.ai;
 
 
 import com.chess.engine.classic.board.Board;
+import com.chess.engine.classic.board.BoardUtils;
 import com.chess.engine.classic.board.Move;
 import com.chess.engine.classic.board.MoveTransition;
 import com.chess.engine.classic.player.Player;
@@ -96,7 +97,7 @@ public final class MoveOrdering {
 
     public int min(final Board board,
                    final int depth) {
-        if(depth == 0 || isEndGameScenario(board)) {
+        if(depth == 0 || BoardUtils.isEndGame(board)) {
             return this.evaluator.evaluate(board, depth);
         }
         int lowestSeenValue = Integer.MAX_VALUE;
@@ -114,7 +115,7 @@ public final class MoveOrdering {
 
     public int max(final Board board,
                    final int depth) {
-        if(depth == 0 || isEndGameScenario(board)) {
+        if(depth == 0 || BoardUtils.isEndGame(board)) {
             return this.evaluator.evaluate(board, depth);
         }
         int highestSeenValue = Integer.MIN_VALUE;
@@ -130,9 +131,4 @@ public final class MoveOrdering {
         return highestSeenValue;
     }
 
-    private static boolean isEndGameScenario(final Board board) {
-        return  board.currentPlayer().isInCheckMate() ||
-                board.currentPlayer().isInStaleMate();
-    }
-
 }
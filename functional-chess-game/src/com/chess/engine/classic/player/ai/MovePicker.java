@@ -0,0 +1,211 @@
+package com.chess.engine.classic.player.ai;
+
+import com.chess.engine.classic.board.MoveEncoding;
+import com.chess.engine.classic.board.MoveList;
+import com.chess.engine.classic.board.SearchBoard;
+import com.chess.engine.classic.pieces.Piece.PieceType;
+
+import static com.chess.engine.classic.board.BoardUtils.mvvlva;
+
+/*
+ * Hands out the moves of one node best first, doing as little as it can up front, since a
+ * node that cuts off on its first move never needs the rest:
+ *
+ * HASH          the move that was best here last time, tried before anything is generated
+ * CAPTURES      captures and promotions, generated alone and ordered most valuable victim
+ *               first, leaving out those the static exchange says lose material
+ * KILLERS       the quiet moves that last cut off at this ply, still without generating
+ * QUIETS        the other moves, generated only once the killers have failed to cut off,
+ *               the counter move first, then by history
+ * BAD_CAPTURES  the losing captures, least losing first
+ *
+ * Each move is scored once when its stage begins, and the next move is picked by a scan for
+ * the best remaining score rather than by sorting the list. The hash move and the killers
+ * come from other positions, so each is checked against the board before it is handed out
+ * and passed over when it comes up again among the generated moves.
+ */
+final class MovePicker {
+
+    private enum Stage {
+        HASH,
+        GENERATE_CAPTURES,
+        CAPTURES,
+        KILLERS,
+        QUIETS,
+        BAD_CAPTURES,
+        DONE
+    }
+
+    private SearchBoard board;
+    private MoveList moves;
+    private SearchHistory history;
+    private int hashMove;
+    private final int[] killers = new int[SearchHistory.NUM_KILLERS];
+    private int nextKiller;
+    private Stage stage;
+    private int nextCapture;
+    private int nextQuiet;
+    private int quietStart;
+
+    /* Readies the picker for a node; moves is that node's own list, which it fills. */
+    void reset(final SearchBoard board,
+               final MoveList moves,
+               final SearchHistory history,
+               final int hashMove) {
+        this.board = board;
+        this.moves = moves;
+        this.history = history;
+        this.hashMove = hashMove;
+        this.stage = Stage.HASH;
+        this.nextKiller = 0;
+        this.nextCapture = 0;
+        this.nextQuiet = 0;
+        this.quietStart = -1;
+    }
+
+    /* The next move to try, or NULL_MOVE once every legal move has been handed out. */
+    int nextMove() {
+        while (true) {
+            switch (this.stage) {
+                case HASH:
+                    this.stage = Stage.GENERATE_CAPTURES;
+                    if (this.hashMove != MoveEncoding.NULL_MOVE) {
+                        if (this.board.isLegalMove(this.hashMove)) {
+                            return this.hashMove;
+                        }
+                        this.hashMove = MoveEncoding.NULL_MOVE;
+                    }
+                    break;
+                case GENERATE_CAPTURES:
+                    this.board.generateCaptures(this.moves);
+                    scoreCaptures();
+                    this.stage = Stage.CAPTURES;
+                    break;
+                case CAPTURES:
+                    final int capture = pickCapture(0);
+                    if (capture != MoveEncoding.NULL_MOVE) {
+                        return capture;
+                    }
+                    this.stage = Stage.KILLERS;
+                    break;
+                case KILLERS:
+                    if (this.nextKiller < this.killers.length) {
+                        final int killer = this.history.getKiller(this.board, this.nextKiller);
+                        final boolean isPlayable = killer != MoveEncoding.NULL_MOVE && killer != this.hashMove &&
+                                                   this.board.isLegalMove(killer);
+                        this.killers[this.nextKiller++] = isPlayable ? killer : MoveEncoding.NULL_MOVE;
+                        if (isPlayable) {
+                            return killer;
+                        }
+                        break;
+                    }
+                    generateQuiets();
+                    this.nextQuiet = this.quietStart;
+                    this.stage = Stage.QUIETS;
+                    break;
+                case QUIETS:
+                    final int quiet = pickQuiet();
+                    if (quiet != MoveEncoding.NULL_MOVE) {
+                        return quiet;
+                    }
+                    this.stage = Stage.BAD_CAPTURES;
+                    break;
+                case BAD_CAPTURES:
+                    final int badCapture = pickCapture(Integer.MIN_VALUE);
+                    if (badCapture != MoveEncoding.NULL_MOVE) {
+                        return badCapture;
+                    }
+                    this.stage = Stage.DONE;
+                    break;
+                default:
+                    return MoveEncoding.NULL_MOVE;
+            }
+        }
+    }
+
+    /* Losing captures score below zero by what they lose; every other score here is positive. */
+    private void scoreCaptures() {
+        for (int i = 0; i < this.moves.size(); i++) {
+            final int move = this.moves.get(i);
+            final int exchange = canLoseExchange(move) ? this.board.staticExchange(move) : 0;
+            this.moves.setScore(i, exchange < 0 ? exchange :
+                    (MoveEncoding.isPromotion(move) ? PieceType.QUEEN.getPieceValue() * 100 : 0) + mvvlva(move));
+        }
+    }
+
+    private void generateQuiets() {
+        this.quietStart = this.moves.size();
+        this.board.generateQuietMoves(this.moves);
+        for (int i = this.quietStart; i < this.moves.size(); i++) {
+            this.moves.setScore(i, this.history.score(this.board, this.moves.get(i)));
+        }
+    }
+
+    /* The best capture left scoring at least minScore, or NULL_MOVE when none does. */
+    private int pickCapture(final int minScore) {
+        final int end = this.quietStart < 0 ? this.moves.size() : this.quietStart;
+        while (this.nextCapture < end) {
+            final int best = selectBest(this.nextCapture, end);
+            if (this.moves.getScore(best) < minScore) {
+                return MoveEncoding.NULL_MOVE;
+            }
+            this.moves.swap(this.nextCapture, best);
+            final int move = this.moves.get(this.nextCapture++);
+            if (move != this.hashMove) {
+                return move;
+            }
+        }
+        return MoveEncoding.NULL_MOVE;
+    }
+
+    private int pickQuiet() {
+        while (this.nextQuiet < this.moves.size()) {
+            this.moves.swap(this.nextQuiet, selectBest(this.nextQuiet, this.moves.size()));
+            final int move = this.moves.get(this.nextQuiet++);
+            if (move != this.hashMove && !isKiller(move)) {
+                return move;
+            }
+        }
+        return MoveEncoding.NULL_MOVE;
+    }
+
+    private boolean isKiller(final int move) {
+        for (final int killer : this.killers) {
+            if (move == killer) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /*
+     * One step of a selection sort: the index of the best score from start to end. Moves that
+     * went out in an earlier stage are passed over by the callers when they come up again.
+     */
+    private int selectBest(final int start,
+                           final int end) {
+        int best = start;
+        for (int i = start + 1; i < end; i++) {
+            if (this.moves.getScore(i) > this.moves.getScore(best)) {
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    /* Whether a move is a capture the static exchange says loses material. */
+    static boolean isLosingCapture(final SearchBoard board,
+                                   final int move) {
+        return canLoseExchange(move) && board.staticExchange(move) < 0;
+    }
+
+    /*
+     * Only a capture by a piece worth more than its victim can come out behind, so the
+     * exchange is worked out for those alone.
+     */
+    private static boolean canLoseExchange(final int move) {
+        return MoveEncoding.isCapture(move) && !MoveEncoding.isPromotion(move) &&
+               MoveEncoding.getMovedPieceType(move).getPieceValue() > MoveEncoding.getCapturedPieceType(move).getPieceValue();
+    }
+
+}
@@ -0,0 +1,497 @@
+package com.chess.engine.classic.player.ai;
+
+import com.chess.engine.classic.board.MoveEncoding;
+import com.chess.engine.classic.board.MoveList;
+import com.chess.engine.classic.board.SearchBoard;
+import com.chess.engine.classic.pieces.Piece.PieceType;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import static com.chess.engine.classic.board.BoardUtils.mvvlva;
+
+/*
+ * The alpha-beta search shared by the strategies, written once in negamax form: every score
+ * is from the point of view of the side to move, and a child's score is the negation of its
+ * own. The evaluator scores for white, so leaves flip the sign when black is to move.
+ *
+ * The first move at a node is searched with the full window. The rest are principal variation
+ * probes: a null window just above alpha only answers whether the move beats the best so far,
+ * and the move is searched again with the full window only when it does. With good ordering
+ * that is rare, and null window searches cut off much sooner.
+ *
+ * Two selective options, both off unless asked for. Null move pruning lets the side to move
+ * pass at a null window node: if the reply searched shallower still cannot bring the score
+ * under beta, a real move would not either and the node is cut. A side left with only pawns
+ * may be in zugzwang, where passing is better than any move, so it is never offered the pass.
+ * Late move reductions search quiet moves far down the ordering one or two plies shallower,
+ * going back to the full depth only when one beats alpha after all.
+ *
+ * Near the leaves, where the static score is a fair guess of what a shallow search would
+ * find, the PruningMargins decide how far under alpha a node may be before its quiet moves
+ * are skipped or it is left to the quiescence search. Each kind of pruning is counted apart.
+ *
+ * Below the nominal depth the search does not stop on a half finished exchange. A quiescence
+ * search plays out captures and promotions until the position is quiet, so the score a line
+ * ends on is not one a recapture would overturn on the next ply.
+ *
+ * Not thread safe; parallel strategies give each worker its own instance.
+ */
+class NegamaxSearch {
+
+    /* Outside any evaluation, mate scores included, and safe to negate. */
+    static final int INFINITY = 100000000;
+
+    /* Plies of captures past the horizon before the position is scored as it stands. */
+    private static final int MAX_QUIESCENCE_DEPTH = 8;
+    /* Nodes between looks at the clock, less one; reading it at every node costs too much. */
+    private static final int TIME_CHECK_INTERVAL = 1023;
+    /* Plies the null move search is shortened by, beyond the ply the pass itself uses. */
+    private static final int NULL_MOVE_REDUCTION = 2;
+    private static final int DEEP_NULL_MOVE_REDUCTION = 3;
+    private static final int NULL_MOVE_MIN_DEPTH = 3;
+    /* Moves tried at full depth at a node before reductions begin. */
+    private static final int FULL_DEPTH_MOVES = 3;
+    private static final int REDUCTION_MIN_DEPTH = 3;
+    /* Depths at and below which futility pruning applies, and the one razoring applies at. */
+    private static final int FRONTIER_DEPTH = 2;
+    private static final int RAZOR_DEPTH = 2;
+    /* Entries in the table of best moves, a power of two so the hash can be masked into it. */
+    private static final int HASH_MOVE_ENTRIES = 1 << 16;
+
+    /*
+     * How a strategy orders the root moves it hands to searchRoot. Below the root every node
+     * takes its moves from a MovePicker; orderers that want it can rank quiet root moves by
+     * the search's history.
+     */
+    interface MoveOrderer {
+
+        void sort(SearchBoard board, MoveList moves, SearchHistory history);
+
+    }
+
+    /* Above the killer and counter move bonuses, so every capture and promotion goes first. */
+    private static final int NOISY_ROOT_SCORE = 1 << 23;
+    /* Above any history entry, so castling leads the quiet moves that are not killers. */
+    private static final int CASTLE_ROOT_SCORE = 1 << 15;
+
+    /*
+     * The root ordering of the strategies built on this search: captures and promotions first,
+     * the heaviest mover first among them, then the quiet moves by the history tables.
+     */
+    enum RootOrderer implements MoveOrderer {
+
+        HISTORY {
+            @Override
+            public void sort(final SearchBoard board,
+                             final MoveList moves,
+                             final SearchHistory history) {
+                for (int i = 0; i < moves.size(); i++) {
+                    final int move = moves.get(i);
+                    if (MoveEncoding.isCapture(move) || MoveEncoding.isPromotion(move)) {
+                        moves.setScore(i, NOISY_ROOT_SCORE | MoveEncoding.getMovedPieceType(move).getPieceValue());
+                    } else {
+                        moves.setScore(i, (MoveEncoding.isCastle(move) ? CASTLE_ROOT_SCORE : 0) + history.score(board, move));
+                    }
+                }
+                moves.sort();
+            }
+        }
+
+    }
+
+    private final BoardEvaluator evaluator;
+    private final Map<Long, TableEntry> transpositionTable;
+    private final SearchHistory searchHistory;
+    private final long[] hashMoveKeys;
+    private final int[] hashMoves;
+    private MovePicker[] movePickers;
+    private boolean isNullMovePruning;
+    private boolean isLateMoveReductions;
+    private PruningMargins pruningMargins;
+    private long futilityPrunes;
+    private long razorPrunes;
+    private long deltaPrunes;
+    private long losingCapturePrunes;
+    private long boardsEvaluated;
+    private long quiescenceNodes;
+    private int cutOffsProduced;
+    private int bestRootMoveIndex;
+    private long deadline;
+    private long nodesSinceTimeCheck;
+    private boolean isAborted;
+
+    NegamaxSearch(final BoardEvaluator evaluator) {
+        this(evaluator, null);
+    }
+
+    /*
+     * Positions whose score came back strictly inside the window are remembered in the table,
+     * when one is given, with the depth they were searched to, and answered from it the next
+     * time they are reached with no more depth left than that. Bounds from
+     * null window probes are never stored. The move that cut off or raised alpha at a node is
+     * kept apart, in a table of this search's own, and tried first when the node comes round
+     * again, whatever the window.
+     */
+    NegamaxSearch(final BoardEvaluator evaluator,
+                  final Map<Long, TableEntry> transpositionTable) {
+        this.evaluator = evaluator;
+        this.transpositionTable = transpositionTable;
+        this.searchHistory = new SearchHistory();
+        this.hashMoveKeys = new long[HASH_MOVE_ENTRIES];
+        this.hashMoves = new int[HASH_MOVE_ENTRIES];
+        this.movePickers = new MovePicker[0];
+        this.pruningMargins = new PruningMargins.Builder().build();
+        this.boardsEvaluated = 0;
+        this.quiescenceNodes = 0;
+        this.cutOffsProduced = 0;
+        this.bestRootMoveIndex = -1;
+        this.deadline = Long.MAX_VALUE;
+        this.isAborted = false;
+    }
+
+    long getBoardsEvaluated() {
+        return this.boardsEvaluated;
+    }
+
+    /* Nodes visited past the nominal depth, counted apart from the main search. */
+    long getQuiescenceNodes() {
+        return this.quiescenceNodes;
+    }
+
+    int getCutOffsProduced() {
+        return this.cutOffsProduced;
+    }
+
+    SearchHistory getSearchHistory() {
+        return this.searchHistory;
+    }
+
+    void setNullMovePruning(final boolean isNullMovePruning) {
+        this.isNullMovePruning = isNullMovePruning;
+    }
+
+    void setLateMoveReductions(final boolean isLateMoveReductions) {
+        this.isLateMoveReductions = isLateMoveReductions;
+    }
+
+    void setPruningMargins(final PruningMargins pruningMargins) {
+        this.pruningMargins = pruningMargins;
+    }
+
+    /* Quiet moves skipped at frontier nodes. */
+    long getFutilityPrunes() {
+        return this.futilityPrunes;
+    }
+
+    /* Pre-frontier nodes dropped once the quiescence search confirmed they fail low. */
+    long getRazorPrunes() {
+        return this.razorPrunes;
+    }
+
+    /* Quiescence captures, or whole quiescence nodes, given up as unable to reach alpha. */
+    long getDeltaPrunes() {
+        return this.deltaPrunes;
+    }
+
+    /* Quiescence captures skipped because the static exchange loses material. */
+    long getLosingCapturePrunes() {
+        return this.losingCapturePrunes;
+    }
+
+    /*
+     * Past the deadline, given as System.currentTimeMillis time, the search unwinds at once
+     * and every score it returns from then on is meaningless; callers check isAborted and
+     * throw the unfinished search away.
+     */
+    void setDeadline(final long deadline) {
+        this.deadline = deadline;
+        this.isAborted = false;
+    }
+
+    boolean isAborted() {
+        return this.isAborted;
+    }
+
+    /* The move that raised alpha in the last searchRoot, or -1 when none did. */
+    int getBestRootMoveIndex() {
+        return this.bestRootMoveIndex;
+    }
+
+    /*
+     * Searches the given root moves in their current order and returns the best score, clamped
+     * to the window: a result at alpha or beta means the true score lies beyond it.
+     */
+    int searchRoot(final SearchBoard board,
+                   final MoveList moves,
+                   final int depth,
+                   final int alpha,
+                   final int beta) {
+        int currentAlpha = alpha;
+        this.bestRootMoveIndex = -1;
+        for (int i = 0; i < moves.size(); i++) {
+            board.makeMove(moves.get(i));
+            final int score = searchChild(board, depth - 1, currentAlpha, beta, i == 0);
+            board.unmakeMove();
+            if (this.isAborted) {
+                break;
+            }
+            if (score > currentAlpha) {
+                currentAlpha = score;
+                this.bestRootMoveIndex = i;
+                if (currentAlpha >= beta) {
+                    this.cutOffsProduced++;
+                    this.searchHistory.recordCutoff(board, moves.get(i), depth);
+                    break;
+                }
+            }
+        }
+        return currentAlpha;
+    }
+
+    /*
+     * Scores the position just reached for the side that moved into it. Anything but the
+     * first move at a node is probed with a null window before a full search is spent on it.
+     */
+    int searchChild(final SearchBoard board,
+                    final int depth,
+                    final int alpha,
+                    final int beta,
+                    final boolean isFirstMove) {
+        if (isFirstMove) {
+            return -search(board, depth, -beta, -alpha);
+        }
+        final int score = -search(board, depth, -alpha - 1, -alpha);
+        return score > alpha && score < beta ? -search(board, depth, -beta, -alpha) : score;
+    }
+
+    int search(final SearchBoard board,
+               final int depth,
+               final int alpha,
+               final int beta) {
+        if (isOutOfTime()) {
+            return 0;
+        }
+        if (depth <= 0) {
+            return quiescence(board, alpha, beta, 0);
+        }
+        final boolean isInCheck = board.isInCheck();
+        final boolean isNullWindow = beta - alpha == 1;
+        final boolean isFrontier = isNullWindow && !isInCheck && depth <= FRONTIER_DEPTH &&
+                (this.pruningMargins.isFutilityPruning() || this.pruningMargins.isRazoring());
+        /* the evaluator generates into this ply's move list, so score before generating */
+        final int staticScore = isFrontier ? evaluate(board, 0) : 0;
+        if (isFrontier && depth == RAZOR_DEPTH && this.pruningMargins.isRazoring() &&
+            staticScore + this.pruningMargins.getRazorMargin() < alpha &&
+            quiescence(board, alpha, beta, 0) <= alpha) {
+            this.razorPrunes++;
+            return alpha;
+        }
+        final long boardHash = board.getZobristHash();
+        if (this.transpositionTable != null) {
+            final TableEntry cached = this.transpositionTable.get(boardHash);
+            if (cached != null && cached.depth >= depth) {
+                return cached.score;
+            }
+        }
+        if (this.isNullMovePruning && isNullWindow && !isInCheck && depth >= NULL_MOVE_MIN_DEPTH &&
+            board.getMoveAt(0) != MoveEncoding.NULL_MOVE && board.hasNonPawnMaterial()) {
+            final int reduction = depth > 6 ? DEEP_NULL_MOVE_REDUCTION : NULL_MOVE_REDUCTION;
+            board.makeNullMove();
+            final int score = -search(board, depth - 1 - reduction, -beta, -beta + 1);
+            board.unmakeNullMove();
+            if (this.isAborted) {
+                return 0;
+            }
+            if (score >= beta) {
+                this.cutOffsProduced++;
+                return beta;
+            }
+        }
+        final boolean isFutile = isFrontier && this.pruningMargins.isFutilityPruning() &&
+                staticScore + this.pruningMargins.getFutilityMargin() * depth <= alpha;
+        int currentAlpha = alpha;
+        int bestMove = MoveEncoding.NULL_MOVE;
+        final MovePicker picker = getMovePicker(board.getPly());
+        picker.reset(board, board.getMoveList(), this.searchHistory, getHashMove(boardHash));
+        int i = 0;
+        for (int move = picker.nextMove(); move != MoveEncoding.NULL_MOVE; move = picker.nextMove(), i++) {
+            final boolean isQuiet = !MoveEncoding.isCapture(move) && !MoveEncoding.isPromotion(move);
+            board.makeMove(move);
+            if (isFutile && isQuiet && !board.isInCheck()) {
+                board.unmakeMove();
+                this.futilityPrunes++;
+                continue;
+            }
+            final int score;
+            if (this.isLateMoveReductions && i >= FULL_DEPTH_MOVES && depth >= REDUCTION_MIN_DEPTH &&
+                !isInCheck && isQuiet && !board.isInCheck()) {
+                final int reduction = i >= 2 * FULL_DEPTH_MOVES && depth >= 2 * REDUCTION_MIN_DEPTH ? 2 : 1;
+                final int reducedScore = -search(board, depth - 1 - reduction, -currentAlpha - 1, -currentAlpha);
+                score = reducedScore > currentAlpha ? searchChild(board, depth - 1, currentAlpha, beta, false) : reducedScore;
+            } else {
+                score = searchChild(board, depth - 1, currentAlpha, beta, i == 0);
+            }
+            board.unmakeMove();
+            /* the scores of an aborted search are made up, so nothing may be learned from them */
+            if (this.isAborted) {
+                return 0;
+            }
+            if (score > currentAlpha) {
+                currentAlpha = score;
+                bestMove = move;
+                if (currentAlpha >= beta) {
+                    this.cutOffsProduced++;
+                    this.searchHistory.recordCutoff(board, move, depth);
+                    storeHashMove(boardHash, move);
+                    return beta;
+                }
+            }
+        }
+        if (i == 0) {
+            /* no legal move: mate or stalemate, which the evaluator tells apart */
+            return evaluate(board, depth);
+        }
+        if (bestMove != MoveEncoding.NULL_MOVE && !this.isAborted) {
+            storeHashMove(boardHash, bestMove);
+            if (this.transpositionTable != null) {
+                this.transpositionTable.merge(boardHash, new TableEntry(depth, currentAlpha),
+                        (stored, searched) -> stored.depth > searched.depth ? stored : searched);
+            }
+        }
+        return currentAlpha;
+    }
+
+    /*
+     * The side to move may stand pat on the static score or try a capture or promotion to
+     * improve on it. In check there is no standing pat, so every evasion is searched and a
+     * position without one is mate. A capture that could not lift the score to alpha even
+     * with the delta margin to spare is not worth searching, and neither is one that loses
+     * the exchange it starts: if it were any good, a quiet move would have to follow it.
+     */
+    private int quiescence(final SearchBoard board,
+                           final int alpha,
+                           final int beta,
+                           final int quiescenceDepth) {
+        this.quiescenceNodes++;
+        if (isOutOfTime()) {
+            return 0;
+        }
+        if (quiescenceDepth >= MAX_QUIESCENCE_DEPTH) {
+            return evaluate(board, 0);
+        }
+        final boolean isInCheck = board.isInCheck();
+        int currentAlpha = alpha;
+        int standPat = -INFINITY;
+        if (!isInCheck) {
+            /* the evaluator generates into this ply's move list, so score before generating */
+            standPat = evaluate(board, 0);
+            if (standPat >= beta) {
+                return beta;
+            }
+            if (this.pruningMargins.isDeltaPruning() &&
+                standPat + maximumGain(board) + this.pruningMargins.getDeltaMargin() < alpha) {
+                this.deltaPrunes++;
+                return alpha;
+            }
+            currentAlpha = Math.max(currentAlpha, standPat);
+        }
+        final MoveList moves = board.getMoveList();
+        if (isInCheck ? board.generateMoves(moves) == 0 : board.generateCaptures(moves) == 0) {
+            return isInCheck ? evaluate(board, 0) : currentAlpha;
+        }
+        for (int i = 0; i < moves.size(); i++) {
+            final int move = moves.get(i);
+            moves.setScore(i, (MoveEncoding.isPromotion(move) ? PieceType.QUEEN.getPieceValue() * 100 : 0) + mvvlva(move));
+        }
+        moves.sort();
+        for (int i = 0; i < moves.size(); i++) {
+            final int move = moves.get(i);
+            if (!isInCheck && this.pruningMargins.isDeltaPruning() && !MoveEncoding.isPromotion(move) &&
+                standPat + MoveEncoding.getCapturedPieceType(move).getPieceValue() +
+                this.pruningMargins.getDeltaMargin() <= currentAlpha) {
+                this.deltaPrunes++;
+                continue;
+            }
+            if (!isInCheck && MovePicker.isLosingCapture(board, move)) {
+                this.losingCapturePrunes++;
+                continue;
+            }
+            board.makeMove(move);
+            final int score = -quiescence(board, -beta, -currentAlpha, quiescenceDepth + 1);
+            board.unmakeMove();
+            if (score > currentAlpha) {
+                currentAlpha = score;
+                if (currentAlpha >= beta) {
+                    this.cutOffsProduced++;
+                    return beta;
+                }
+            }
+        }
+        return currentAlpha;
+    }
+
+    /*
+     * The most one capture can win: a queen, or a queen and a promotion besides when the side
+     * to move has a pawn on its seventh rank that might take one on the way in.
+     */
+    private static int maximumGain(final SearchBoard board) {
+        final int queenValue = PieceType.QUEEN.getPieceValue();
+        return board.hasPawnOnSeventhRank() ? 2 * queenValue - PieceType.PAWN.getPieceValue() : queenValue;
+    }
+
+    /* Pickers are kept per ply, so a node's picker survives the searches of its children. */
+    private MovePicker getMovePicker(final int ply) {
+        if (ply >= this.movePickers.length) {
+            final MovePicker[] movePickers = Arrays.copyOf(this.movePickers, Math.max(2 * this.movePickers.length, ply + 1));
+            for (int i = this.movePickers.length; i < movePickers.length; i++) {
+                movePickers[i] = new MovePicker();
+            }
+            this.movePickers = movePickers;
+        }
+        return this.movePickers[ply];
+    }
+
+    private int getHashMove(final long boardHash) {
+        final int index = (int) boardHash & (HASH_MOVE_ENTRIES - 1);
+        return this.hashMoveKeys[index] == boardHash ? this.hashMoves[index] : MoveEncoding.NULL_MOVE;
+    }
+
+    private void storeHashMove(final long boardHash,
+                               final int move) {
+        final int index = (int) boardHash & (HASH_MOVE_ENTRIES - 1);
+        this.hashMoveKeys[index] = boardHash;
+        this.hashMoves[index] = move;
+    }
+
+    private boolean isOutOfTime() {
+        if (!this.isAborted && (++this.nodesSinceTimeCheck & TIME_CHECK_INTERVAL) == 0 &&
+            System.currentTimeMillis() >= this.deadline) {
+            this.isAborted = true;
+        }
+        return this.isAborted;
+    }
+
+    /* The evaluator's score turned to the side to move. */
+    private int evaluate(final SearchBoard board,
+                         final int depth) {
+        this.boardsEvaluated++;
+        final int score = this.evaluator.evaluate(board, depth);
+        return board.getAlliance().isWhite() ? score : -score;
+    }
+
+    /* A score in the shared table and the depth it was searched to; a deeper entry is kept. */
+    static final class TableEntry {
+
+        private final int depth;
+        private final int score;
+
+        TableEntry(final int depth,
+                   final int score) {
+            this.depth = depth;
+            this.score = score;
+        }
+
+    }
+
+}
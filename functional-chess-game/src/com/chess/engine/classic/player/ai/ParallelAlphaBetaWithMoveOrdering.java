@@ -1,16 +1,16 @@
 package com.chess.engine.classic.player.ai;
 
 import static com.chess.engine.classic.board.Move.*;
+import static com.chess.engine.classic.player.ai.NegamaxSearch.MoveOrderer;
+import static com.chess.engine.classic.player.ai.NegamaxSearch.TableEntry;
+import static com.chess.engine.classic.player.ai.NegamaxSearch.RootOrderer;
 import com.chess.engine.classic.Alliance;
 import com.chess.engine.classic.board.Board;
-import com.chess.engine.classic.board.BoardUtils;
 import com.chess.engine.classic.board.Move;
 import com.chess.engine.classic.board.MoveTransition;
+import com.chess.engine.classic.board.MoveList;
+import com.chess.engine.classic.board.SearchBoard;
 import com.chess.engine.classic.player.Player;
-import com.google.common.collect.ComparisonChain;
-import com.google.common.collect.Ordering;
-import java.util.Collection;
-import java.util.Comparator;
 import java.util.Observable;
 import java.util.ArrayList;
 import java.util.List;
@@ -36,48 +36,43 @@ import java.util.stream.Collectors;
 public class ParallelAlphaBetaWithMoveOrdering extends Observable implements MoveStrategy {
     private final BoardEvaluator evaluator;
     private final int searchDepth;
-    private final MoveSorter moveSorter;
+    private final boolean isNullMovePruning;
+    private final boolean isLateMoveReductions;
+    private final PruningMargins pruningMargins;
+    private final MoveOrderer moveSorter;
     private long boardsEvaluated;
     private long executionTime;
-    private int quiescenceCount;
     private int cutOffsProduced;
 
     // List to store total time taken to calculate each move.
     public static ArrayList<Long> moveTimes = new ArrayList<Long>();
 
-    // Transposition table to store previously computed values.
-    private final ConcurrentHashMap<Long, Integer> transpositionTable = new ConcurrentHashMap<>();
+    // Transposition table to store previously computed values, keyed by the Zobrist hash of the
+    // position and shared by the workers; the search only stores scores that fell inside its window,
+    // with their depth. Scores are only good for the search they came from, so each move starts empty.
+    private final ConcurrentHashMap<Long, TableEntry> transpositionTable = new ConcurrentHashMap<>();
 
-    private enum MoveSorter {
-
-        SORT {
-            @Override
-            Collection<Move> sort(final Collection<Move> moves) {
-                return Ordering.from(SMART_SORT).immutableSortedCopy(moves);
-            }
-        };
-
-        public static Comparator<Move> SMART_SORT = new Comparator<Move>() {
-            @Override
-            public int compare(final Move move1, final Move move2) {
-                return ComparisonChain.start()
-                        .compareTrueFirst(BoardUtils.isThreatenedBoardImmediate(move1.getBoard()), BoardUtils.isThreatenedBoardImmediate(move2.getBoard()))
-                        .compareTrueFirst(move1.isAttack(), move2.isAttack())
-                        .compareTrueFirst(move1.isCastlingMove(), move2.isCastlingMove())
-                        .compare(move2.getMovedPiece().getPieceValue(), move1.getMovedPiece().getPieceValue())
-                        .result();
-            }
-        };
+    public ParallelAlphaBetaWithMoveOrdering(final int searchDepth) {
+        this(searchDepth, false, false);
+    }
 
-        abstract Collection<Move> sort(Collection<Move> moves);
+    public ParallelAlphaBetaWithMoveOrdering(final int searchDepth,
+                                             final boolean isNullMovePruning,
+                                             final boolean isLateMoveReductions) {
+        this(searchDepth, isNullMovePruning, isLateMoveReductions, new PruningMargins.Builder().build());
     }
 
-    public ParallelAlphaBetaWithMoveOrdering(final int searchDepth) {
+    public ParallelAlphaBetaWithMoveOrdering(final int searchDepth,
+                                             final boolean isNullMovePruning,
+                                             final boolean isLateMoveReductions,
+                                             final PruningMargins pruningMargins) {
         this.evaluator = StandardBoardEvaluator.get();
         this.searchDepth = searchDepth;
-        this.moveSorter = MoveSorter.SORT;
+        this.isNullMovePruning = isNullMovePruning;
+        this.isLateMoveReductions = isLateMoveReductions;
+        this.pruningMargins = pruningMargins;
+        this.moveSorter = RootOrderer.HISTORY;
         this.boardsEvaluated = 0;
-        this.quiescenceCount = 0;
         this.cutOffsProduced = 0;
     }
 
@@ -200,6 +195,7 @@ public class ParallelAlphaBetaWithMoveOrdering extends Observable implements Mov
     @Override
     public Move execute(final Board board) {
         final long startTime = System.currentTimeMillis();
+        this.transpositionTable.clear();
 
 
         // Use a fixed thread pool via an ExecutorService to parallelize the search.
@@ -210,55 +206,74 @@ public class ParallelAlphaBetaWithMoveOrdering extends Observable implements Mov
         final Alliance alliance = currentPlayer.getAlliance();
         final Move[] bestMove = {MoveFactory.getNullMove()};
 
-        //AtomicIntegers are used for thread-safe operations
-        AtomicInteger highestSeenValue = new AtomicInteger(Integer.MIN_VALUE);
-        AtomicInteger lowestSeenValue = new AtomicInteger(Integer.MAX_VALUE);
+        //AtomicIntegers are used for thread-safe operations; scores are for the side to move
+        AtomicInteger bestValue = new AtomicInteger(-NegamaxSearch.INFINITY);
         AtomicInteger moveCounter = new AtomicInteger(1);
 
-        final int numMoves = this.moveSorter.sort(board.currentPlayer().getLegalMoves()).size();
+        final SearchBoard rootBoard = new SearchBoard(board);
+        final MoveList rootMoves = rootBoard.getMoveList();
+        rootBoard.generateMoves(rootMoves);
+        this.moveSorter.sort(rootBoard, rootMoves, new SearchHistory());
+        final int numMoves = rootMoves.size();
+        final List<Move> orderedMoves = new ArrayList<>(numMoves);
+        for (int i = 0; i < numMoves; i++) {
+            orderedMoves.add(MoveFactory.createMove(board, rootMoves.get(i)));
+        }
         System.out.println(board.currentPlayer() + " THINKING with depth = " + this.searchDepth);
-        System.out.println("\tOrdered moves! : " + this.moveSorter.sort(board.currentPlayer().getLegalMoves()));
+        System.out.println("\tOrdered moves! : " + orderedMoves);
 
         List<Future<MoveResult>> futures = new ArrayList<>();
-        for (final Move move : this.moveSorter.sort(board.currentPlayer().getLegalMoves())) {
-            // Submit tasks to the executor for parallel execution.
+        for (int i = 0; i < numMoves; i++) {
+            final int searchMove = rootMoves.get(i);
+            final Move move = orderedMoves.get(i);
+            // Submit tasks to the executor for parallel execution, each on its own search board.
             futures.add(executor.submit(() -> {
-                final MoveTransition moveTransition = board.currentPlayer().makeMove(move);
-                this.quiescenceCount = 0;
-                if (moveTransition.getMoveStatus().isDone()) {
-                    final long candidateMoveStartTime = System.nanoTime();
-                    int currentValue = alliance.isWhite() ?
-                            min(moveTransition.getToBoard(), this.searchDepth - 1, highestSeenValue.get(), lowestSeenValue.get()) :
-                            max(moveTransition.getToBoard(), this.searchDepth - 1, highestSeenValue.get(), lowestSeenValue.get());
-
-                    final String quiescenceInfo = " [h: " + highestSeenValue + " l: " + lowestSeenValue + "] q: " + this.quiescenceCount;
-                    final String s = "\t" + toString() + "(" + this.searchDepth + "), m: (" + moveCounter.getAndIncrement() + "/" + numMoves + ") " + move + ", best:  " + bestMove[0]
-                            + quiescenceInfo + ", t: " + calculateTimeTaken(candidateMoveStartTime, System.nanoTime()) + ", thread: " + Thread.currentThread().getName();
-
-                    System.out.println(s);
-
-                    setChanged();
-                    notifyObservers(s);
-
-                    return new MoveResult(move, currentValue);
-                } else {
-                    return new MoveResult(move, alliance.isWhite() ? Integer.MIN_VALUE : Integer.MAX_VALUE);
-                }
+                final SearchBoard searchBoard = new SearchBoard(board);
+                final NegamaxSearch search = new NegamaxSearch(this.evaluator, this.transpositionTable);
+                search.setNullMovePruning(this.isNullMovePruning);
+                search.setLateMoveReductions(this.isLateMoveReductions);
+                search.setPruningMargins(this.pruningMargins);
+                searchBoard.makeMove(searchMove);
+                final long candidateMoveStartTime = System.nanoTime();
+                // Until some move has finished there is no score to probe against with a null window.
+                final int alpha = bestValue.get();
+                int currentValue = search.searchChild(searchBoard, this.searchDepth - 1, alpha, NegamaxSearch.INFINITY,
+                        alpha == -NegamaxSearch.INFINITY);
+
+                final int bestScore = bestValue.get();
+                final String quiescenceInfo = " [score: " + (alliance.isWhite() ? bestScore : -bestScore) + "] q: " + search.getQuiescenceNodes();
+                final String s = "\t" + toString() + "(" + this.searchDepth + "), m: (" + moveCounter.getAndIncrement() + "/" + numMoves + ") " + move + ", best:  " + bestMove[0]
+                        + quiescenceInfo + ", t: " + calculateTimeTaken(candidateMoveStartTime, System.nanoTime()) + ", thread: " + Thread.currentThread().getName();
+
+                System.out.println(s);
+
+                setChanged();
+                notifyObservers(s);
+
+                return new MoveResult(move, currentValue, search);
             }));
         }
 
         // Collect the results from the futures and update the best move.
+        long futilityPrunes = 0;
+        long razorPrunes = 0;
+        long deltaPrunes = 0;
+        long losingCapturePrunes = 0;
         try {
             for (Future<MoveResult> future : futures) {
                 MoveResult moveResult = future.get();
                 Move move = moveResult.move;
                 int currentValue = moveResult.value;
 
-                if (alliance.isWhite() && currentValue > highestSeenValue.get()) {
-                    highestSeenValue.set(currentValue);
-                    bestMove[0] = move;
-                } else if (alliance.isBlack() && currentValue < lowestSeenValue.get()) {
-                    lowestSeenValue.set(currentValue);
+                this.boardsEvaluated += moveResult.boardsEvaluated;
+                this.cutOffsProduced += moveResult.cutOffsProduced;
+                futilityPrunes += moveResult.futilityPrunes;
+                razorPrunes += moveResult.razorPrunes;
+                deltaPrunes += moveResult.deltaPrunes;
+                losingCapturePrunes += moveResult.losingCapturePrunes;
+
+                if (currentValue > bestValue.get()) {
+                    bestValue.set(currentValue);
                     bestMove[0] = move;
                 }
             }
@@ -273,6 +288,8 @@ public class ParallelAlphaBetaWithMoveOrdering extends Observable implements Mov
         moveTimes.add(this.executionTime);
         System.out.printf("%s SELECTS %s [#boards evaluated = %d, time taken = %d ms, eval rate = %.1f cutoffCount = %d prune percent = %.2f\n", board.currentPlayer(),
                 bestMove[0], this.boardsEvaluated, this.executionTime, (1000 * ((double) this.boardsEvaluated / this.executionTime)), this.cutOffsProduced, 100 * ((double) this.cutOffsProduced / this.boardsEvaluated));
+        System.out.printf("\tpruned: futility = %d, razor = %d, delta = %d, losing captures = %d\n",
+                futilityPrunes, razorPrunes, deltaPrunes, losingCapturePrunes);
         System.out.println("MoveTimes: " + moveTimes);
         return bestMove[0];
     }
@@ -340,80 +357,6 @@ public class ParallelAlphaBetaWithMoveOrdering extends Observable implements Mov
         }
 */
 
-    public int max(final Board board, final int depth, final int highest, final int lowest) {
-
-        if (depth == 0 || BoardUtils.isEndGame(board)) {
-            this.boardsEvaluated++;
-            return this.evaluator.evaluate(board, depth);
-        }
-
-    /*
-     - Calculates a Zobrist hash for a given game board configuration.
-     - A Zobrist hash is a unique identifier for the board state, generated
-     - by XOR-ing the precomputed hash values of each piece on the board.
-     - This allows for efficient comparison of board states without having
-     - to check each piece individually.
-
-     - A method was added to the Board class to allow the transpoisiton table to be implemented using zobrist hashing
-     */
-        final long boardHash = board.getZobristHash();
-
-        // Use the transposition table to cache and retrieve previously computed values.
-        if (transpositionTable.containsKey(boardHash)) {
-            return transpositionTable.get(boardHash);
-        }
-        int currentHighest = highest;
-        for (final Move move : this.moveSorter.sort((board.currentPlayer().getLegalMoves()))) {
-            final MoveTransition moveTransition = board.currentPlayer().makeMove(move);
-            if (moveTransition.getMoveStatus().isDone()) {
-                currentHighest = Math.max(currentHighest, min(moveTransition.getToBoard(),
-                        calculateQuiescenceDepth(board, move, depth), currentHighest, lowest));
-                if (lowest <= currentHighest) {
-                    this.cutOffsProduced++;
-                    break;
-                }
-            }
-        }
-        transpositionTable.put(boardHash, currentHighest);
-        return currentHighest;
-    }
-
-    
-
-    public int min(final Board board, final int depth, final int highest, final int lowest) {
-
-        if (depth == 0 || BoardUtils.isEndGame(board)) {
-            this.boardsEvaluated++;
-            return this.evaluator.evaluate(board, depth);
-        }
-
-        //Calculates a Zobrist hash for a given game board configuration.
-        final long boardHash = board.getZobristHash();
-
-        // Use the transposition table to cache and retrieve previously computed values.
-        if (transpositionTable.containsKey(boardHash)) {
-            return transpositionTable.get(boardHash);
-        }
-        int currentLowest = lowest;
-        for (final Move move : this.moveSorter.sort((board.currentPlayer().getLegalMoves()))) {
-            final MoveTransition moveTransition = board.currentPlayer().makeMove(move);
-            if (moveTransition.getMoveStatus().isDone()) {
-                currentLowest = Math.min(currentLowest, max(moveTransition.getToBoard(),
-                        calculateQuiescenceDepth(board, move, depth), highest, currentLowest));
-                if (currentLowest <= highest) {
-                    this.cutOffsProduced++;
-                    break;
-                }
-            }
-        }
-        transpositionTable.put(boardHash, currentLowest);
-        return currentLowest;
-    }
-
-    private int calculateQuiescenceDepth(final Board board, final Move move, final int depth) {
-        return depth - 1;
-    }
-
     private static String calculateTimeTaken(final long start, final long end) {
         final long timeTaken = (end - start) / 1000000;
         return timeTaken + " ms";
@@ -422,10 +365,22 @@ public class ParallelAlphaBetaWithMoveOrdering extends Observable implements Mov
     private static class MoveResult {
         private final Move move;
         private final int value;
-
-        public MoveResult(Move move, int value) {
+        private final long boardsEvaluated;
+        private final int cutOffsProduced;
+        private final long futilityPrunes;
+        private final long razorPrunes;
+        private final long deltaPrunes;
+        private final long losingCapturePrunes;
+
+        public MoveResult(Move move, int value, NegamaxSearch search) {
             this.move = move;
             this.value = value;
+            this.boardsEvaluated = search.getBoardsEvaluated();
+            this.cutOffsProduced = search.getCutOffsProduced();
+            this.futilityPrunes = search.getFutilityPrunes();
+            this.razorPrunes = search.getRazorPrunes();
+            this.deltaPrunes = search.getDeltaPrunes();
+            this.losingCapturePrunes = search.getLosingCapturePrunes();
         }
     }
 }
\ No newline at end of file
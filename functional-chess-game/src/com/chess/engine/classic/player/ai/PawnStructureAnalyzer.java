@@ -1,5 +1,6 @@
 package com.chess.engine.classic.player.ai;
 
+import com.chess.engine.classic.board.BoardUtils;
 import com.chess.engine.classic.pieces.Piece;
 import com.chess.engine.classic.player.Player;
 
@@ -33,6 +34,16 @@ public final class PawnStructureAnalyzer {
         return calculatePawnColumnStack(pawnsOnColumnTable) + calculateIsolatedPawnPenalty(pawnsOnColumnTable);
     }
 
+    public int pawnStructureScore(final long pawns) {
+        final int[] pawnsOnColumnTable = new int[8];
+        long remaining = pawns;
+        while (remaining != 0) {
+            pawnsOnColumnTable[BoardUtils.getColumn(Long.numberOfTrailingZeros(remaining))]++;
+            remaining &= remaining - 1;
+        }
+        return calculatePawnColumnStack(pawnsOnColumnTable) + calculateIsolatedPawnPenalty(pawnsOnColumnTable);
+    }
+
     private static Collection<Piece> calculatePlayerPawns(final Player player) {
         return player.getActivePieces().stream().filter(piece -> piece.getPieceType() == Piece.PieceType.PAWN).collect(Collectors.toList());
     }
@@ -66,7 +77,7 @@ public final class PawnStructureAnalyzer {
     private static int[] createPawnColumnTable(final Collection<Piece> playerPawns) {
         final int[] table = new int[8];
         for(final Piece playerPawn : playerPawns) {
-            table[playerPawn.getPiecePosition() % 8]++;
+            table[BoardUtils.getColumn(playerPawn.getPiecePosition())]++;
         }
         return table;
     }
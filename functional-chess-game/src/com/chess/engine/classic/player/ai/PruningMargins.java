@@ -0,0 +1,107 @@
+package com.chess.engine.classic.player.ai;
+
+/*
+ * How far below alpha the static score of a node near the leaves must be before the search
+ * stops looking at it closely, in evaluation units. A margin of DISABLED turns that pruning
+ * off.
+ *
+ * futility  at the frontier, depth 1 or 2, quiet moves that do not give check are skipped
+ *           when the score plus the margin for each ply left cannot reach alpha
+ * razoring  at depth 2, a node whose score plus the margin is under alpha is given to the
+ *           quiescence search, and dropped when that agrees it fails low
+ * delta     in the quiescence search, captures that could not lift the score to alpha even
+ *           with the margin to spare are skipped
+ *
+ * The default prunes in the quiescence search only; standard() turns on all three.
+ */
+public final class PruningMargins {
+
+    public static final int DISABLED = -1;
+
+    private static final int STANDARD_FUTILITY_MARGIN = 200;
+    private static final int STANDARD_RAZOR_MARGIN = 400;
+    private static final int STANDARD_DELTA_MARGIN = 200;
+
+    private final int futilityMargin;
+    private final int razorMargin;
+    private final int deltaMargin;
+
+    private PruningMargins(final Builder builder) {
+        this.futilityMargin = builder.futilityMargin;
+        this.razorMargin = builder.razorMargin;
+        this.deltaMargin = builder.deltaMargin;
+    }
+
+    public static PruningMargins standard() {
+        return new Builder().setFutilityMargin(STANDARD_FUTILITY_MARGIN)
+                            .setRazorMargin(STANDARD_RAZOR_MARGIN)
+                            .build();
+    }
+
+    public int getFutilityMargin() {
+        return this.futilityMargin;
+    }
+
+    public int getRazorMargin() {
+        return this.razorMargin;
+    }
+
+    public int getDeltaMargin() {
+        return this.deltaMargin;
+    }
+
+    public boolean isFutilityPruning() {
+        return this.futilityMargin != DISABLED;
+    }
+
+    public boolean isRazoring() {
+        return this.razorMargin != DISABLED;
+    }
+
+    public boolean isDeltaPruning() {
+        return this.deltaMargin != DISABLED;
+    }
+
+    @Override
+    public String toString() {
+        return "futility " + this.futilityMargin + " razor " + this.razorMargin + " delta " + this.deltaMargin;
+    }
+
+    public static class Builder {
+
+        int futilityMargin;
+        int razorMargin;
+        int deltaMargin;
+
+        public Builder() {
+            this.futilityMargin = DISABLED;
+            this.razorMargin = DISABLED;
+            this.deltaMargin = STANDARD_DELTA_MARGIN;
+        }
+
+        public Builder setFutilityMargin(final int futilityMargin) {
+            this.futilityMargin = futilityMargin;
+            return this;
+        }
+
+        public Builder setRazorMargin(final int razorMargin) {
+            this.razorMargin = razorMargin;
+            return this;
+        }
+
+        public Builder setDeltaMargin(final int deltaMargin) {
+            this.deltaMargin = deltaMargin;
+            return this;
+        }
+
+        public PruningMargins build() {
+            if (this.futilityMargin < DISABLED || this.razorMargin < DISABLED || this.deltaMargin < DISABLED) {
+                throw new RuntimeException("Invalid pruning margins " + this.futilityMargin + " " +
+                        this.razorMargin + " " + this.deltaMargin);
+            }
+            return new PruningMargins(this);
+        }
+
+    }
+
+}
@@ -0,0 +1,117 @@
+package com.chess.engine.classic.player.ai;
+
+import com.chess.engine.classic.board.MoveEncoding;
+import com.chess.engine.classic.board.SearchBoard;
+
+import java.util.Arrays;
+
+/*
+ * What the search has learned about quiet moves from the cutoffs they caused, for ordering
+ * them at the nodes still to come. Captures and promotions are ordered on their material and
+ * never recorded here.
+ *
+ * Killers are held whole, so a picker can check one against the board and play it before
+ * generating; the other tables hold moves by their from/to/flags key.
+ *
+ * killers       the last two quiet moves to cut off at each ply; a refutation found in one
+ *               line often refutes its siblings too
+ * counter moves the quiet move that last cut off in reply to a given from/to pair
+ * history       a butterfly table per side, keyed on from/to, credited depth squared for
+ *               each cutoff so that cutoffs near the root count for more
+ */
+final class SearchHistory {
+
+    static final int KILLER_SCORE = 1 << 22;
+    static final int COUNTER_MOVE_SCORE = 1 << 21;
+    /* Entries are halved once one passes this, keeping every history score below the bonuses. */
+    static final int HISTORY_MAX = 1 << 14;
+
+    static final int NUM_KILLERS = 2;
+
+    private final int[][] killers;
+    private final int[] counterMoves;
+    private final int[][] history;
+
+    SearchHistory() {
+        this.killers = new int[SearchLimits.MAX_SEARCH_DEPTH + 1][NUM_KILLERS];
+        this.counterMoves = new int[64 * 64];
+        this.history = new int[2][64 * 64];
+    }
+
+    /* Orders a quiet move: killers first, then the counter move, then by history. */
+    int score(final SearchBoard board,
+              final int move) {
+        final int ply = board.getPly();
+        if (ply < this.killers.length) {
+            if (move == this.killers[ply][0]) {
+                return KILLER_SCORE;
+            }
+            if (move == this.killers[ply][1]) {
+                return KILLER_SCORE - 1;
+            }
+        }
+        final int moveKey = MoveEncoding.getKey(move);
+        final int previousMove = board.getMoveAt(0);
+        if (previousMove != MoveEncoding.NULL_MOVE && moveKey == this.counterMoves[key(previousMove)]) {
+            return COUNTER_MOVE_SCORE;
+        }
+        return this.history[side(board)][key(move)];
+    }
+
+    /* The index'th killer at the board's ply, or NULL_MOVE when there is none. */
+    int getKiller(final SearchBoard board,
+                  final int index) {
+        final int ply = board.getPly();
+        return ply < this.killers.length ? this.killers[ply][index] : MoveEncoding.NULL_MOVE;
+    }
+
+    /* Called with the move that failed high, after it has been taken back. */
+    void recordCutoff(final SearchBoard board,
+                      final int move,
+                      final int depth) {
+        if (MoveEncoding.isCapture(move) || MoveEncoding.isPromotion(move)) {
+            return;
+        }
+        final int ply = board.getPly();
+        if (ply < this.killers.length && this.killers[ply][0] != move) {
+            this.killers[ply][1] = this.killers[ply][0];
+            this.killers[ply][0] = move;
+        }
+        final int previousMove = board.getMoveAt(0);
+        if (previousMove != MoveEncoding.NULL_MOVE) {
+            this.counterMoves[key(previousMove)] = MoveEncoding.getKey(move);
+        }
+        final int[] sideHistory = this.history[side(board)];
+        sideHistory[key(move)] += depth * depth;
+        if (sideHistory[key(move)] > HISTORY_MAX) {
+            for (int i = 0; i < sideHistory.length; i++) {
+                sideHistory[i] /= 2;
+            }
+        }
+    }
+
+    /*
+     * Readies the tables for a search from a new position. Killers belong to plies of the old
+     * tree and are dropped; history and counter moves are still mostly right and are kept,
+     * with history halved so the new search can overrule it quickly.
+     */
+    void age() {
+        for (final int[] plyKillers : this.killers) {
+            Arrays.fill(plyKillers, MoveEncoding.NULL_MOVE);
+        }
+        for (final int[] sideHistory : this.history) {
+            for (int i = 0; i < sideHistory.length; i++) {
+                sideHistory[i] /= 2;
+            }
+        }
+    }
+
+    private static int key(final int move) {
+        return MoveEncoding.getFrom(move) * 64 + MoveEncoding.getTo(move);
+    }
+
+    private static int side(final SearchBoard board) {
+        return board.getAlliance().isWhite() ? 0 : 1;
+    }
+
+}
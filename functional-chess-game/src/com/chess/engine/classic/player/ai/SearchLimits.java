@@ -0,0 +1,124 @@
+package com.chess.engine.classic.player.ai;
+
+/*
+ * How long a search may think about one move. Either a fixed time for the move, or the clock
+ * the side to move has left with its increment and, when the time control has one, the number
+ * of moves until the next control. With neither, only the depth limit applies. Times are in
+ * milliseconds.
+ */
+public final class SearchLimits {
+
+    public static final long NO_TIME_LIMIT = Long.MAX_VALUE;
+    public static final int MAX_SEARCH_DEPTH = 64;
+
+    /* Assumed moves left in the game when the time control does not say. */
+    private static final int DEFAULT_MOVES_TO_GO = 30;
+    /* Kept back from the clock for the move to reach the board. */
+    private static final long SAFETY_MARGIN = 50;
+    private static final long MIN_BUDGET = 10;
+
+    private final int maxDepth;
+    private final long moveTime;
+    private final long remainingTime;
+    private final long increment;
+    private final int movesToGo;
+
+    private SearchLimits(final Builder builder) {
+        this.maxDepth = builder.maxDepth;
+        this.moveTime = builder.moveTime;
+        this.remainingTime = builder.remainingTime;
+        this.increment = builder.increment;
+        this.movesToGo = builder.movesToGo;
+    }
+
+    public static SearchLimits depth(final int maxDepth) {
+        return new Builder().setMaxDepth(maxDepth).build();
+    }
+
+    public static SearchLimits moveTime(final long moveTime) {
+        return new Builder().setMoveTime(moveTime).build();
+    }
+
+    public int getMaxDepth() {
+        return this.maxDepth;
+    }
+
+    public boolean isTimed() {
+        return this.moveTime > 0 || this.remainingTime > 0;
+    }
+
+    /*
+     * The time this move may take: a fixed move time as given, otherwise an even share of the
+     * clock over the moves to go plus most of the increment, never running the clock down.
+     */
+    public long calculateBudget() {
+        if (this.moveTime > 0) {
+            return this.moveTime;
+        }
+        if (this.remainingTime > 0) {
+            final int movesLeft = this.movesToGo > 0 ? this.movesToGo : DEFAULT_MOVES_TO_GO;
+            final long share = this.remainingTime / movesLeft + this.increment * 3 / 4;
+            return Math.max(MIN_BUDGET, Math.min(share, this.remainingTime - SAFETY_MARGIN));
+        }
+        return NO_TIME_LIMIT;
+    }
+
+    @Override
+    public String toString() {
+        if (this.moveTime > 0) {
+            return "movetime " + this.moveTime;
+        }
+        if (this.remainingTime > 0) {
+            return "time " + this.remainingTime + " inc " + this.increment +
+                   (this.movesToGo > 0 ? " movestogo " + this.movesToGo : "");
+        }
+        return "depth " + this.maxDepth;
+    }
+
+    public static class Builder {
+
+        int maxDepth;
+        long moveTime;
+        long remainingTime;
+        long increment;
+        int movesToGo;
+
+        public Builder() {
+            this.maxDepth = MAX_SEARCH_DEPTH;
+        }
+
+        public Builder setMaxDepth(final int maxDepth) {
+            this.maxDepth = maxDepth;
+            return this;
+        }
+
+        public Builder setMoveTime(final long moveTime) {
+            this.moveTime = moveTime;
+            return this;
+        }
+
+        public Builder setRemainingTime(final long remainingTime) {
+            this.remainingTime = remainingTime;
+            return this;
+        }
+
+        public Builder setIncrement(final long increment) {
+            this.increment = increment;
+            return this;
+        }
+
+        public Builder setMovesToGo(final int movesToGo) {
+            this.movesToGo = movesToGo;
+            return this;
+        }
+
+        public SearchLimits build() {
+            if (this.maxDepth < 1) {
+                throw new RuntimeException("Invalid search depth " + this.maxDepth);
+            }
+            return new SearchLimits(this);
+        }
+
+    }
+
+}
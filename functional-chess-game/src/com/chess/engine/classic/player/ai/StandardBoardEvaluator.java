@@ -1,13 +1,20 @@
 package com.chess.engine.classic.player.ai;
 
+import com.chess.engine.classic.Alliance;
+import com.chess.engine.classic.board.BitBoard;
 import com.chess.engine.classic.board.Board;
 import com.chess.engine.classic.board.Move;
+import com.chess.engine.classic.board.MoveEncoding;
+import com.chess.engine.classic.board.MoveList;
+import com.chess.engine.classic.board.SearchBoard;
 import com.chess.engine.classic.pieces.Piece;
+import com.chess.engine.classic.pieces.Piece.PieceType;
 import com.chess.engine.classic.player.Player;
 import com.chess.engine.classic.player.ai.KingSafetyAnalyzer.KingDistance;
 import com.google.common.annotations.VisibleForTesting;
 
 import static com.chess.engine.classic.pieces.Piece.PieceType.BISHOP;
+import static com.chess.engine.classic.pieces.Piece.PieceType.PAWN;
 
 public final class StandardBoardEvaluator
         implements BoardEvaluator {
@@ -30,21 +37,39 @@ public final class StandardBoardEvaluator
     @Override
     public int evaluate(final Board board,
                         final int depth) {
-        return score(board.whitePlayer(), depth) - score(board.blackPlayer(), depth);
+        return score(board, board.whitePlayer(), depth) - score(board, board.blackPlayer(), depth);
+    }
+
+    /*
+     * Same terms as evaluate(Board, int), computed from the search board so leaf nodes
+     * never have to materialise a Board.
+     */
+    @Override
+    public int evaluate(final SearchBoard board,
+                        final int depth) {
+        final MoveList moves = board.getMoveList();
+        board.generatePseudoLegalMoves(Alliance.WHITE, moves);
+        final int whiteMoveCount = moves.size();
+        final int whiteAttacks = attacks(board, moves);
+        board.generatePseudoLegalMoves(Alliance.BLACK, moves);
+        final int blackMoveCount = moves.size();
+        final int blackAttacks = attacks(board, moves);
+        return score(board, Alliance.WHITE, depth, whiteMoveCount, blackMoveCount, whiteAttacks) -
+               score(board, Alliance.BLACK, depth, blackMoveCount, whiteMoveCount, blackAttacks);
     }
 
     public String evaluationDetails(final Board board, final int depth) {
         return
                ("White Mobility : " + mobility(board.whitePlayer()) + "\n") +
                 "White kingThreats : " + kingThreats(board.whitePlayer(), depth) + "\n" +
-                "White attacks : " + attacks(board.whitePlayer()) + "\n" +
+                "White attacks : " + attacks(board, board.whitePlayer()) + "\n" +
                 "White castle : " + castle(board.whitePlayer()) + "\n" +
                 "White pieceEval : " + pieceEvaluations(board.whitePlayer()) + "\n" +
                 "White pawnStructure : " + pawnStructure(board.whitePlayer()) + "\n" +
                 "---------------------\n" +
                 "Black Mobility : " + mobility(board.blackPlayer()) + "\n" +
                 "Black kingThreats : " + kingThreats(board.blackPlayer(), depth) + "\n" +
-                "Black attacks : " + attacks(board.blackPlayer()) + "\n" +
+                "Black attacks : " + attacks(board, board.blackPlayer()) + "\n" +
                 "Black castle : " + castle(board.blackPlayer()) + "\n" +
                 "Black pieceEval : " + pieceEvaluations(board.blackPlayer()) + "\n" +
                 "Black pawnStructure : " + pawnStructure(board.blackPlayer()) + "\n\n" +
@@ -52,24 +77,110 @@ public final class StandardBoardEvaluator
     }
 
     @VisibleForTesting
-    private static int score(final Player player,
+    private static int score(final Board board,
+                             final Player player,
                              final int depth) {
         return mobility(player) +
                kingThreats(player, depth) +
-               attacks(player) +
+               attacks(board, player) +
                castle(player) +
                pieceEvaluations(player) +
                pawnStructure(player);
     }
 
-    private static int attacks(final Player player) {
+    private static int score(final SearchBoard board,
+                             final Alliance alliance,
+                             final int depth,
+                             final int moveCount,
+                             final int opponentMoveCount,
+                             final int attacks) {
+        return MOBILITY_MULTIPLIER * (int)((moveCount * 10.0f) / Math.max(1, opponentMoveCount)) +
+               kingThreats(board, alliance, depth) +
+               attacks +
+               (board.isCastled(alliance) ? CASTLE_BONUS : 0) +
+               pieceEvaluations(board, alliance) +
+               PawnStructureAnalyzer.get().pawnStructureScore(board.getPieces(alliance, PAWN));
+    }
+
+    /*
+     * Counts the captures that do not lose material. Taking with a piece worth no more than
+     * the victim never can; anything else is settled by the static exchange.
+     */
+    private static int attacks(final SearchBoard board,
+                               final MoveList moves) {
+        int attackScore = 0;
+        for (int i = 0; i < moves.size(); i++) {
+            final int move = moves.get(i);
+            if (MoveEncoding.isCapture(move) && !MovePicker.isLosingCapture(board, move)) {
+                attackScore++;
+            }
+        }
+        return attackScore * ATTACK_MULTIPLIER;
+    }
+
+    private static int pieceEvaluations(final SearchBoard board,
+                                        final Alliance alliance) {
+        int pieceValuationScore = 0;
+        for (final PieceType pieceType : PieceType.values()) {
+            long pieces = board.getPieces(alliance, pieceType);
+            while (pieces != 0) {
+                final int position = Long.numberOfTrailingZeros(pieces);
+                pieceValuationScore += pieceType.getPieceValue() + locationBonus(alliance, pieceType, position);
+                pieces &= pieces - 1;
+            }
+        }
+        return pieceValuationScore + (Long.bitCount(board.getPieces(alliance, BISHOP)) == 2 ? TWO_BISHOPS_BONUS : 0);
+    }
+
+    private static int locationBonus(final Alliance alliance,
+                                     final PieceType pieceType,
+                                     final int position) {
+        switch (pieceType) {
+            case PAWN:
+                return alliance.pawnBonus(position);
+            case KNIGHT:
+                return alliance.knightBonus(position);
+            case BISHOP:
+                return alliance.bishopBonus(position);
+            case ROOK:
+                return alliance.rookBonus(position);
+            case QUEEN:
+                return alliance.queenBonus(position);
+            default:
+                return alliance.kingBonus(position);
+        }
+    }
+
+    private static int kingThreats(final SearchBoard board,
+                                   final Alliance alliance,
+                                   final int depth) {
+        final Alliance opponent = alliance.isWhite() ? Alliance.BLACK : Alliance.WHITE;
+        if (!board.isInCheck(opponent)) {
+            return 0;
+        }
+        return board.getAlliance() == opponent && !board.hasLegalMove() ? CHECK_MATE_BONUS * depthBonus(depth) : CHECK_BONUS;
+    }
+
+    /* The exchanges are worked out on the board's own bitboards. */
+    private static int attacks(final Board board,
+                               final Player player) {
         int attackScore = 0;
+        int[] exchangeGains = null;
         for(final Move move : player.getLegalMoves()) {
             if(move.isAttack()) {
                 final Piece movedPiece = move.getMovedPiece();
                 final Piece attackedPiece = move.getAttackedPiece();
                 if(movedPiece.getPieceValue() <= attackedPiece.getPieceValue()) {
                     attackScore++;
+                } else {
+                    if (exchangeGains == null) {
+                        exchangeGains = new int[BitBoard.EXCHANGE_GAINS_LENGTH];
+                    }
+                    if (board.getBitBoard().staticExchange(MoveEncoding.create(move.getCurrentCoordinate(), move.getDestinationCoordinate(),
+                            MoveEncoding.CAPTURE, movedPiece.getPieceType().ordinal(), attackedPiece.getPieceType().ordinal()),
+                            movedPiece.getPieceAllegiance(), exchangeGains) >= 0) {
+                        attackScore++;
+                    }
                 }
             }
         }
@@ -93,7 +204,7 @@ public final class StandardBoardEvaluator
     }
 
     private static int mobilityRatio(final Player player) {
-        return (int)((player.getLegalMoves().size() * 10.0f) / player.getOpponent().getLegalMoves().size());
+        return (int)((player.getLegalMoves().size() * 10.0f) / Math.max(1, player.getOpponent().getLegalMoves().size()));
     }
 
     private static int kingThreats(final Player player,
@@ -1,59 +1,68 @@
 package com.chess.engine.classic.player.ai;
 
 import com.chess.engine.classic.board.Board;
-import com.chess.engine.classic.board.BoardUtils;
 import com.chess.engine.classic.board.Move;
-import com.chess.engine.classic.board.MoveTransition;
+import com.chess.engine.classic.board.MoveEncoding;
+import com.chess.engine.classic.board.MoveList;
+import com.chess.engine.classic.board.SearchBoard;
 import com.chess.engine.classic.player.Player;
-import com.google.common.collect.ComparisonChain;
-import com.google.common.collect.Ordering;
 
-import java.util.Collection;
-import java.util.Comparator;
 import java.util.Observable;
 
 import static com.chess.engine.classic.board.BoardUtils.mvvlva;
+import static com.chess.engine.classic.player.ai.NegamaxSearch.MoveOrderer;
 import static com.chess.engine.classic.board.Move.MoveFactory;
 
 public class StockAlphaBeta extends Observable implements MoveStrategy {
 
     private final BoardEvaluator evaluator;
     private final int searchDepth;
-    private long boardsEvaluated;
-    private int quiescenceCount;
-    private static final int MAX_QUIESCENCE = 5000 * 5;
+    private final NegamaxSearch search;
 
-    private enum MoveSorter {
+    private enum MoveSorter implements MoveOrderer {
 
         STANDARD {
             @Override
-            Collection<Move> sort(final Collection<Move> moves) {
-                return Ordering.from((Comparator<Move>) (move1, move2) -> ComparisonChain.start()
-                        .compareTrueFirst(move1.isCastlingMove(), move2.isCastlingMove())
-                        .compare(mvvlva(move2), mvvlva(move1))
-                        .result()).immutableSortedCopy(moves);
+            int score(final SearchBoard board,
+                      final int move) {
+                return (MoveEncoding.isCastle(move) ? CASTLE_PRIORITY : 0) + mvvlva(move);
             }
         },
         EXPENSIVE {
             @Override
-            Collection<Move> sort(final Collection<Move> moves) {
-                return Ordering.from((Comparator<Move>) (move1, move2) -> ComparisonChain.start()
-                        .compareTrueFirst(BoardUtils.kingThreat(move1), BoardUtils.kingThreat(move2))
-                        .compareTrueFirst(move1.isCastlingMove(), move2.isCastlingMove())
-                        .compare(mvvlva(move2), mvvlva(move1))
-                        .result()).immutableSortedCopy(moves);
+            int score(final SearchBoard board,
+                      final int move) {
+                return (board.givesCheck(move) ? CHECK_PRIORITY : 0) + STANDARD.score(board, move);
             }
         };
 
-        abstract  Collection<Move> sort(Collection<Move> moves);
+        private static final int CASTLE_PRIORITY = 1 << 22;
+        private static final int CHECK_PRIORITY = 1 << 23;
+
+        @Override
+        public void sort(final SearchBoard board,
+                         final MoveList moves,
+                         final SearchHistory history) {
+            for (int i = 0; i < moves.size(); i++) {
+                moves.setScore(i, score(board, moves.get(i)));
+            }
+            moves.sort();
+        }
+
+        abstract int score(SearchBoard board, int move);
     }
 
 
     public StockAlphaBeta(final int searchDepth) {
+        this(searchDepth, new PruningMargins.Builder().build());
+    }
+
+    public StockAlphaBeta(final int searchDepth,
+                          final PruningMargins pruningMargins) {
         this.evaluator = StandardBoardEvaluator.get();
         this.searchDepth = searchDepth;
-        this.boardsEvaluated = 0;
-        this.quiescenceCount = 0;
+        this.search = new NegamaxSearch(this.evaluator);
+        this.search.setPruningMargins(pruningMargins);
     }
 
     @Override
@@ -63,143 +72,64 @@ public class StockAlphaBeta extends Observable implements MoveStrategy {
 
     @Override
     public long getNumBoardsEvaluated() {
-        return this.boardsEvaluated;
+        return this.search.getBoardsEvaluated();
     }
 
     @Override
     public Move execute(final Board board) {
         final long startTime = System.currentTimeMillis();
         final Player currentPlayer = board.currentPlayer();
+        final SearchBoard searchBoard = new SearchBoard(board);
+        this.search.getSearchHistory().age();
         Move bestMove = MoveFactory.getNullMove();
-        int highestSeenValue = Integer.MIN_VALUE;
-        int lowestSeenValue = Integer.MAX_VALUE;
+        int bestValue = -NegamaxSearch.INFINITY;
         int currentValue;
         System.out.println(board.currentPlayer() + " THINKING with depth = " + this.searchDepth);
-        int moveCounter = 1;
-        int numMoves = board.currentPlayer().getLegalMoves().size();
-        for (final Move move : MoveSorter.EXPENSIVE.sort((board.currentPlayer().getLegalMoves()))) {
-            final MoveTransition moveTransition = board.currentPlayer().makeMove(move);
-            this.quiescenceCount = 0;
+        final MoveList moves = searchBoard.getMoveList();
+        searchBoard.generateMoves(moves);
+        MoveSorter.EXPENSIVE.sort(searchBoard, moves, this.search.getSearchHistory());
+        final int numMoves = moves.size();
+        for (int i = 0; i < numMoves; i++) {
+            final Move move = MoveFactory.createMove(board, moves.get(i));
             final String s;
-            if (moveTransition.getMoveStatus().isDone()) {
-                final long candidateMoveStartTime = System.nanoTime();
-                currentValue = currentPlayer.getAlliance().isWhite() ?
-                        min(moveTransition.getToBoard(), this.searchDepth - 1, highestSeenValue, lowestSeenValue) :
-                        max(moveTransition.getToBoard(), this.searchDepth - 1, highestSeenValue, lowestSeenValue);
-                if (currentPlayer.getAlliance().isWhite() && currentValue > highestSeenValue) {
-                    highestSeenValue = currentValue;
-                    bestMove = move;
-                    if(moveTransition.getToBoard().blackPlayer().isInCheckMate()) {
-                        break;
-                    }
-                }
-                else if (currentPlayer.getAlliance().isBlack() && currentValue < lowestSeenValue) {
-                    lowestSeenValue = currentValue;
-                    bestMove = move;
-                    if(moveTransition.getToBoard().whitePlayer().isInCheckMate()) {
-                        break;
-                    }
+            searchBoard.makeMove(moves.get(i));
+            final long candidateMoveStartTime = System.nanoTime();
+            currentValue = this.search.searchChild(searchBoard, this.searchDepth - 1, bestValue, NegamaxSearch.INFINITY, i == 0);
+            final boolean isCheckMate = searchBoard.isInCheck() && !searchBoard.hasLegalMove();
+            searchBoard.unmakeMove();
+            if (currentValue > bestValue) {
+                bestValue = currentValue;
+                bestMove = move;
+                if(isCheckMate) {
+                    break;
                 }
+            }
 
-                final String quiescenceInfo = " " + score(currentPlayer, highestSeenValue, lowestSeenValue) + " q: " +this.quiescenceCount;
-                s = "\t" + toString() + "(" +this.searchDepth+ "), m: (" +moveCounter+ "/" +numMoves+ ") " + move + ", best:  " + bestMove
+            final String quiescenceInfo = " " + score(currentPlayer, bestValue) + " q: " +this.search.getQuiescenceNodes();
+            s = "\t" + toString() + "(" +this.searchDepth+ "), m: (" +(i + 1)+ "/" +numMoves+ ") " + move + ", best:  " + bestMove
 
-                        + quiescenceInfo + ", t: " +calculateTimeTaken(candidateMoveStartTime, System.nanoTime());
-            } else {
-                s = "\t" + toString() + "(" +this.searchDepth + ")" + ", m: (" +moveCounter+ "/" +numMoves+ ") " + move + " is illegal! best: " +bestMove;
-            }
+                    + quiescenceInfo + ", t: " +calculateTimeTaken(candidateMoveStartTime, System.nanoTime());
             System.out.println(s);
             setChanged();
             notifyObservers(s);
-            moveCounter++;
         }
 
         final long executionTime = System.currentTimeMillis() - startTime;
-        final String result = board.currentPlayer() + " SELECTS " +bestMove+ " [#boards evaluated = " +this.boardsEvaluated+
-                " time taken = " + executionTime /1000+ " rate = " +(1000 * ((double)this.boardsEvaluated/ executionTime));
+        final String result = board.currentPlayer() + " SELECTS " +bestMove+ " [#boards evaluated = " +this.search.getBoardsEvaluated()+
+                " time taken = " + executionTime /1000+ " rate = " +(1000 * ((double)this.search.getBoardsEvaluated()/ executionTime));
         System.out.printf("%s SELECTS %s [#boards evaluated = %d, time taken = %d ms, rate = %.1f\n", board.currentPlayer(),
-                bestMove, this.boardsEvaluated, executionTime, (1000 * ((double)this.boardsEvaluated/ executionTime)));
+                bestMove, this.search.getBoardsEvaluated(), executionTime, (1000 * ((double)this.search.getBoardsEvaluated()/ executionTime)));
+        System.out.printf("\tpruned: futility = %d, razor = %d, delta = %d, losing captures = %d\n", this.search.getFutilityPrunes(),
+                this.search.getRazorPrunes(), this.search.getDeltaPrunes(), this.search.getLosingCapturePrunes());
         setChanged();
         notifyObservers(result);
         return bestMove;
     }
 
+    /* Reported for white, as the evaluator scores, whichever side is searching. */
     private static String score(final Player currentPlayer,
-                                final int highestSeenValue,
-                                final int lowestSeenValue) {
-
-        if(currentPlayer.getAlliance().isWhite()) {
-            return "[score: " +highestSeenValue + "]";
-        } else if(currentPlayer.getAlliance().isBlack()) {
-            return "[score: " +lowestSeenValue+ "]";
-        }
-        throw new RuntimeException("bad bad boy!");
-    }
-
-    private int max(final Board board,
-                    final int depth,
-                    final int highest,
-                    final int lowest) {
-        if (depth == 0 || BoardUtils.isEndGame(board)) {
-            this.boardsEvaluated++;
-            return this.evaluator.evaluate(board, depth);
-        }
-        int currentHighest = highest;
-        for (final Move move : MoveSorter.STANDARD.sort((board.currentPlayer().getLegalMoves()))) {
-            final MoveTransition moveTransition = board.currentPlayer().makeMove(move);
-            if (moveTransition.getMoveStatus().isDone()) {
-                final Board toBoard = moveTransition.getToBoard();
-                currentHighest = Math.max(currentHighest, min(toBoard,
-                        calculateQuiescenceDepth(toBoard, depth), currentHighest, lowest));
-                if (currentHighest >= lowest) {
-                    return lowest;
-                }
-            }
-        }
-        return currentHighest;
-    }
-
-    private int min(final Board board,
-                    final int depth,
-                    final int highest,
-                    final int lowest) {
-        if (depth == 0 || BoardUtils.isEndGame(board)) {
-            this.boardsEvaluated++;
-            return this.evaluator.evaluate(board, depth);
-        }
-        int currentLowest = lowest;
-        for (final Move move : MoveSorter.STANDARD.sort((board.currentPlayer().getLegalMoves()))) {
-            final MoveTransition moveTransition = board.currentPlayer().makeMove(move);
-            if (moveTransition.getMoveStatus().isDone()) {
-                final Board toBoard = moveTransition.getToBoard();
-                currentLowest = Math.min(currentLowest, max(toBoard,
-                        calculateQuiescenceDepth(toBoard, depth), highest, currentLowest));
-                if (currentLowest <= highest) {
-                    return highest;
-                }
-            }
-        }
-        return currentLowest;
-    }
-
-    private int calculateQuiescenceDepth(final Board toBoard,
-                                         final int depth) {
-        if(depth == 1 && this.quiescenceCount < MAX_QUIESCENCE) {
-            int activityMeasure = 0;
-            if (toBoard.currentPlayer().isInCheck()) {
-                activityMeasure += 1;
-            }
-            for(final Move move: BoardUtils.lastNMoves(toBoard, 2)) {
-                if(move.isAttack()) {
-                    activityMeasure += 1;
-                }
-            }
-            if(activityMeasure >= 2) {
-                this.quiescenceCount++;
-                return 2;
-            }
-        }
-        return depth - 1;
+                                final int bestValue) {
+        return "[score: " + (currentPlayer.getAlliance().isWhite() ? bestValue : -bestValue) + "]";
     }
 
     private static String calculateTimeTaken(final long start, final long end) {
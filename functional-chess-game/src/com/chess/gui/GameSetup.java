@@ -2,6 +2,7 @@ package com.chess.gui;
 
 import com.chess.engine.classic.Alliance;
 import com.chess.engine.classic.player.Player;
+import com.chess.engine.classic.player.ai.PruningMargins;
 import com.chess.gui.Table.PlayerType;
 
 import javax.swing.*;
@@ -14,6 +15,10 @@ class GameSetup extends JDialog {
     private PlayerType whitePlayerType;
     private PlayerType blackPlayerType;
     private JSpinner searchDepthSpinner;
+    private JSpinner moveTimeSpinner;
+    private JCheckBox nullMovePruningCheckBox;
+    private JCheckBox lateMoveReductionsCheckBox;
+    private JCheckBox frontierPruningCheckBox;
 
     private static final String HUMAN_TEXT = "Human";
     private static final String COMPUTER_TEXT = "Computer";
@@ -47,6 +52,13 @@ class GameSetup extends JDialog {
 
         myPanel.add(new JLabel("Search"));
         this.searchDepthSpinner = addLabeledSpinner(myPanel, "Search Depth", new SpinnerNumberModel(6, 0, Integer.MAX_VALUE, 1));
+        this.moveTimeSpinner = addLabeledSpinner(myPanel, "Move Time (sec), 0 for fixed depth", new SpinnerNumberModel(0, 0, Integer.MAX_VALUE, 1));
+        this.nullMovePruningCheckBox = new JCheckBox("Null Move Pruning", false);
+        myPanel.add(this.nullMovePruningCheckBox);
+        this.lateMoveReductionsCheckBox = new JCheckBox("Late Move Reductions", false);
+        myPanel.add(this.lateMoveReductionsCheckBox);
+        this.frontierPruningCheckBox = new JCheckBox("Futility Pruning and Razoring", false);
+        myPanel.add(this.frontierPruningCheckBox);
 
         final JButton cancelButton = new JButton("Cancel");
         final JButton okButton = new JButton("OK");
@@ -108,4 +120,20 @@ class GameSetup extends JDialog {
     int getSearchDepth() {
         return (Integer)this.searchDepthSpinner.getValue();
     }
+
+    int getMoveTime() {
+        return (Integer)this.moveTimeSpinner.getValue();
+    }
+
+    boolean isNullMovePruning() {
+        return this.nullMovePruningCheckBox.isSelected();
+    }
+
+    boolean isLateMoveReductions() {
+        return this.lateMoveReductionsCheckBox.isSelected();
+    }
+
+    PruningMargins getPruningMargins() {
+        return this.frontierPruningCheckBox.isSelected() ? PruningMargins.standard() : new PruningMargins.Builder().build();
+    }
 }
@@ -8,6 +8,8 @@ import com.chess.engine.classic.player.ai.StandardBoardEvaluator;
 import com.chess.engine.classic.player.ai.StockAlphaBeta;
 import com.chess.engine.classic.player.ai.AlphaBetaWithMoveOrdering;
 import com.chess.engine.classic.player.ai.ParallelAlphaBetaWithMoveOrdering;
+import com.chess.engine.classic.player.ai.IterativeDeepening;
+import com.chess.engine.classic.player.ai.SearchLimits;
 import com.chess.pgn.FenUtilities;
 import com.chess.pgn.MySqlGamePersistence;
 //import com.google.common.collect.Lists;
@@ -222,10 +224,7 @@ public final class Table extends Observable {
 
         final JMenuItem escapeAnalysis = new JMenuItem("Escape Analysis Score", KeyEvent.VK_S);
         escapeAnalysis.addActionListener(e -> {
-            final Move lastMove = moveLog.getMoves().get(moveLog.size() - 1);
-            if(lastMove != null) {
-                System.out.println(MoveUtils.exchangeScore(lastMove));
-            }
+            System.out.println(MoveUtils.exchangeScore(chessBoard));
 
         });
         optionsMenu.add(escapeAnalysis);
@@ -501,11 +500,24 @@ public final class Table extends Observable {
                 //Alpha Beta with Move Ordering (Sequential)
                 //final AlphaBetaWithMoveOrdering strategy = new AlphaBetaWithMoveOrdering(Table.get().getGameSetup().getSearchDepth(),6);
 
-                //Parallel-Alpha-Beta
-                final ParallelAlphaBetaWithMoveOrdering strategy = new ParallelAlphaBetaWithMoveOrdering(Table.get().getGameSetup().getSearchDepth());
-                strategy.addObserver(Table.get().getDebugPanel());
+                final GameSetup gameSetup = Table.get().getGameSetup();
+                final int moveTime = gameSetup.getMoveTime();
+                if (moveTime > 0) {
+                    //Iterative Deepening within a fixed time per move
+                    final IterativeDeepening strategy = new IterativeDeepening(SearchLimits.moveTime(moveTime * 1000L),
+                            gameSetup.isNullMovePruning(), gameSetup.isLateMoveReductions(), gameSetup.getPruningMargins());
+                    strategy.addObserver(Table.get().getDebugPanel());
+
+                    bestMove = strategy.execute(Table.get().getGameBoard());
+                }
+                else {
+                    //Parallel-Alpha-Beta
+                    final ParallelAlphaBetaWithMoveOrdering strategy = new ParallelAlphaBetaWithMoveOrdering(gameSetup.getSearchDepth(),
+                            gameSetup.isNullMovePruning(), gameSetup.isLateMoveReductions(), gameSetup.getPruningMargins());
+                    strategy.addObserver(Table.get().getDebugPanel());
 
-                bestMove = strategy.execute(Table.get().getGameBoard());
+                    bestMove = strategy.execute(Table.get().getGameBoard());
+                }
             }
             return bestMove;
         }
@@ -792,17 +804,8 @@ public final class Table extends Observable {
         }
 
         private void assignTileColor() {
-            if (BoardUtils.INSTANCE.FIRST_ROW.get(this.tileId) ||
-                BoardUtils.INSTANCE.THIRD_ROW.get(this.tileId) ||
-                BoardUtils.INSTANCE.FIFTH_ROW.get(this.tileId) ||
-                BoardUtils.INSTANCE.SEVENTH_ROW.get(this.tileId)) {
-                setBackground(this.tileId % 2 == 0 ? lightTileColor : darkTileColor);
-            } else if(BoardUtils.INSTANCE.SECOND_ROW.get(this.tileId) ||
-                      BoardUtils.INSTANCE.FOURTH_ROW.get(this.tileId) ||
-                      BoardUtils.INSTANCE.SIXTH_ROW.get(this.tileId)  ||
-                      BoardUtils.INSTANCE.EIGHTH_ROW.get(this.tileId)) {
-                setBackground(this.tileId % 2 != 0 ? lightTileColor : darkTileColor);
-            }
+            final boolean isLightTile = (BoardUtils.getRow(this.tileId) + BoardUtils.getColumn(this.tileId)) % 2 == 0;
+            setBackground(isLightTile ? lightTileColor : darkTileColor);
         }
     }
 }
@@ -5,6 +5,7 @@ import com.chess.engine.classic.Alliance;
 import com.chess.engine.classic.board.Board;
 import com.chess.engine.classic.board.BoardUtils;
 import com.chess.engine.classic.pieces.*;
+import com.chess.engine.classic.pieces.Piece.PieceType;
 
 import static com.chess.engine.classic.board.Board.Builder;
 
@@ -48,52 +49,52 @@ public class FenUtilities {
         while (i < boardTiles.length) {
             switch (boardTiles[i]) {
                 case 'r':
-                    builder.setPiece(new Rook(Alliance.BLACK, i));
+                    builder.setPiece(PieceUtils.INSTANCE.getPiece(PieceType.ROOK, Alliance.BLACK, i));
                     i++;
                     break;
                 case 'n':
-                    builder.setPiece(new Knight(Alliance.BLACK, i));
+                    builder.setPiece(PieceUtils.INSTANCE.getPiece(PieceType.KNIGHT, Alliance.BLACK, i));
                     i++;
                     break;
                 case 'b':
-                    builder.setPiece(new Bishop(Alliance.BLACK, i));
+                    builder.setPiece(PieceUtils.INSTANCE.getPiece(PieceType.BISHOP, Alliance.BLACK, i));
                     i++;
                     break;
                 case 'q':
-                    builder.setPiece(new Queen(Alliance.BLACK, i));
+                    builder.setPiece(PieceUtils.INSTANCE.getPiece(PieceType.QUEEN, Alliance.BLACK, i));
                     i++;
                     break;
                 case 'k':
                     final boolean isCastled = !blackKingSideCastle && !blackQueenSideCastle;
-                    builder.setPiece(new King(Alliance.BLACK, i, blackKingSideCastle, blackQueenSideCastle));
+                    builder.setPiece(PieceUtils.INSTANCE.getKing(Alliance.BLACK, i, blackKingSideCastle, blackQueenSideCastle));
                     i++;
                     break;
                 case 'p':
-                    builder.setPiece(new Pawn(Alliance.BLACK, i));
+                    builder.setPiece(PieceUtils.INSTANCE.getPiece(PieceType.PAWN, Alliance.BLACK, i));
                     i++;
                     break;
                 case 'R':
-                    builder.setPiece(new Rook(Alliance.WHITE, i));
+                    builder.setPiece(PieceUtils.INSTANCE.getPiece(PieceType.ROOK, Alliance.WHITE, i));
                     i++;
                     break;
                 case 'N':
-                    builder.setPiece(new Knight(Alliance.WHITE, i));
+                    builder.setPiece(PieceUtils.INSTANCE.getPiece(PieceType.KNIGHT, Alliance.WHITE, i));
                     i++;
                     break;
                 case 'B':
-                    builder.setPiece(new Bishop(Alliance.WHITE, i));
+                    builder.setPiece(PieceUtils.INSTANCE.getPiece(PieceType.BISHOP, Alliance.WHITE, i));
                     i++;
                     break;
                 case 'Q':
-                    builder.setPiece(new Queen(Alliance.WHITE, i));
+                    builder.setPiece(PieceUtils.INSTANCE.getPiece(PieceType.QUEEN, Alliance.WHITE, i));
                     i++;
                     break;
                 case 'K':
-                    builder.setPiece(new King(Alliance.WHITE, i, whiteKingSideCastle, whiteQueenSideCastle));
+                    builder.setPiece(PieceUtils.INSTANCE.getKing(Alliance.WHITE, i, whiteKingSideCastle, whiteQueenSideCastle));
                     i++;
                     break;
                 case 'P':
-                    builder.setPiece(new Pawn(Alliance.WHITE, i));
+                    builder.setPiece(PieceUtils.INSTANCE.getPiece(PieceType.PAWN, Alliance.WHITE, i));
                     i++;
                     break;
                 case '-':
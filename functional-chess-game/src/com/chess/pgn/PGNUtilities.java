@@ -3,6 +3,8 @@ package com.chess.pgn;
 import com.chess.engine.classic.board.Board;
 import com.chess.engine.classic.board.BoardUtils;
 import com.chess.engine.classic.board.Move;
+import com.chess.engine.classic.board.MoveIndex;
+import com.chess.engine.classic.pieces.Piece;
 import com.chess.gui.Table.MoveLog;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableList.Builder;
@@ -231,12 +233,10 @@ public class PGNUtilities {
 
     private static Move extractCastleMove(final Board board,
                                           final String castleMove) {
-        for (final Move move : board.currentPlayer().getLegalMoves()) {
-            if (move.isCastlingMove() && move.toString().equals(castleMove)) {
-                return move;
-            }
-        }
-        return MoveFactory.getNullMove();
+        final int kingCoordinate = board.currentPlayer().getPlayerKing().getPiecePosition();
+        final int destinationCoordinate = castleMove.equals("O-O") ? kingCoordinate + 2 : kingCoordinate - 2;
+        final Move move = board.currentPlayer().getMoveIndex().getMove(kingCoordinate, destinationCoordinate);
+        return move.isCastlingMove() ? move : MoveFactory.getNullMove();
     }
 
     private static int deriveCurrentCoordinate(final Board board,
@@ -245,9 +245,13 @@ public class PGNUtilities {
                                                final String disambiguationFile) throws RuntimeException {
         final List<Move> currentCandidates = new ArrayList<>();
         final int destinationCoordinate =  BoardUtils.INSTANCE.getCoordinateAtPosition(destinationSquare);
-        for (final Move move : board.currentPlayer().getLegalMoves()) {
-            if (move.getDestinationCoordinate() == destinationCoordinate && move.getMovedPiece().toString().equals(movedPiece)) {
-                currentCandidates.add(move);
+        final MoveIndex moveIndex = board.currentPlayer().getMoveIndex();
+        for (final Piece piece : board.currentPlayer().getActivePieces()) {
+            if (piece.toString().equals(movedPiece)) {
+                final Move move = moveIndex.getMove(piece.getPiecePosition(), destinationCoordinate);
+                if (move != MoveFactory.getNullMove()) {
+                    currentCandidates.add(move);
+                }
             }
         }
 